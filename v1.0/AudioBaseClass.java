@@ -7,18 +7,51 @@
  */
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.Scanner;
 
+import javax.management.ObjectName;
+
 public abstract class AudioBaseClass
 {
 	protected static enum Formats {
 		UNSUPPORTED,
 		NULL,
 		I16,
-		I24
+		I24,
+		I32,
+		F32
 	};
 
+	/*
+	 * Entry of the input file's chunk index: chunk id, offset of the payload in the file, payload size.
+	 */
+
+	public static class ChunkInfo
+	{
+		public final String id;
+		public final long offset;
+		public final long size;
+
+		public ChunkInfo(String id, long offset, long size)
+		{
+			this.id = id;
+			this.offset = offset;
+			this.size = size;
+		}
+	}
+
 	protected static enum Status {
 		ERROR_BROKENHEADER,
 		ERROR_FORMATNOTSUPPORTED,
@@ -29,16 +62,59 @@ public abstract class AudioBaseClass
 		INITIALIZED
 	};
 
-	protected static final String FILETEMP_DIR = "temp.raw";
+	protected static final String FILETEMP_PREFIX = "audiofx_";
+	protected static final String FILETEMP_SUFFIX = ".raw";
 	protected static final String FILEOUT_DIR_DEFAULT = "output.wav";
 	protected static final int BUFFER_SIZE_FRAMES_DEFAULT = 512;
+	protected static final int BUFFER_SIZE_FRAMES_MIN = 16;
+	protected static final int BUFFER_SIZE_FRAMES_MAX = 0x100000;
+	protected static final int BUFFER_SIZE_BYTES_MIN = 256;
+	protected static final long FILEIN_MAP_WINDOW_SIZE = 0x4000000L; /*64 MiB*/
+	protected static final long RIFF_SIZE_MAX = 0xffffffffL;
+	protected static final int WAVE_FORMAT_PCM = 0x0001;
+	protected static final int WAVE_FORMAT_IEEE_FLOAT = 0x0003;
+	protected static final int WAVE_FORMAT_EXTENSIBLE = 0xfffe;
+	protected static final int PIPELINE_RING_SIZE = 4;
+	protected static final int PIPELINE_SLOT_BLOCKS = 32;
+	protected static final int PIPELINE_SLOT_SIZE_MAX = 0x400000; /*4 MiB*/
+	protected static final long PROGRESS_INTERVAL_NANOS = 250000000L; /*250 ms*/
+
+	/*
+	 * Vectorized kernels, selected once at startup: null if vector/AudioVectorKernels.java was not compiled,
+	 * the jdk.incubator.vector module is not available, or -Daudiofx.simd=false was given.
+	 * Effects fall back to their scalar loops in that case.
+	 */
+
+	protected static final AudioSimdKernels SIMD_KERNELS = simdKernelsLoad();
+
+	/*
+	 * Java Flight Recorder events (see AudioEvents), only with -Daudiofx.jfr=true.
+	 */
+
+	protected static final boolean JFR_EVENTS = Boolean.getBoolean("audiofx.jfr");
 
 	protected String fileInDir = "";
 	protected String fileOutDir = "";
 
+	/*
+	 * Every instance gets its own uniquely named temporary file inside scratchDir (system temporary directory if empty),
+	 * so several jobs can run at the same time. The file is deleted on deinitialize().
+	 */
+
+	protected String scratchDir = "";
+	protected String fileTempDir = "";
+
+	protected boolean interactive = true;
+
+	/*
+	 * Block size: bufferSizeFrames frames, or, if bufferSizeTarget is set, as many whole frames as fit
+	 * in bufferSizeTarget bytes (worked out by bufferSizeInit() once the input format is known).
+	 */
+
 	protected int bufferSizeFrames = 0;
 	protected int bufferSizeSamples = 0;
 	protected int bufferSizeBytes = 0;
+	protected int bufferSizeTarget = 0;
 
 	protected Formats format = Formats.NULL;
 	protected Status status = Status.UNINITIALIZED;
@@ -49,6 +125,13 @@ public abstract class AudioBaseClass
 	protected int bitDepth = 0;
 	protected int nChannels = 0;
 
+	/*
+	 * WAVE_FORMAT_EXTENSIBLE input: the output gets an extensible "fmt " chunk as well, with the same channel mask.
+	 */
+
+	protected boolean fmtExtensible = false;
+	protected int channelMask = 0;
+
 	protected long audioDataBegin = 0L;
 	protected long audioDataEnd = 0L;
 
@@ -57,13 +140,84 @@ public abstract class AudioBaseClass
 	protected RandomAccessFile fileTemp = null;
 
 	protected long fileInSize = 0L;
+
+	protected ArrayList<ChunkInfo> chunkIndex = new ArrayList<ChunkInfo>();
 	protected long fileInPos = 0L;
 
+	/*
+	 * Memory-mapped input: the audio data region is mapped in windows of FILEIN_MAP_WINDOW_SIZE bytes,
+	 * so reading a block costs a memory copy instead of a seek + read system call pair.
+	 */
+
+	protected boolean fileInMapEnabled = true;
+	protected FileChannel fileInChannel = null;
+	protected MappedByteBuffer fileInMap = null;
+	protected long fileInMapBegin = 0L;
+	protected long fileInMapEnd = 0L;
+
 	protected long fileOutPos = 0L;
 
+	/*
+	 * Direct output: DSP results are written straight into the output file after the header (fileOutDataBegin bytes),
+	 * and the header sizes are patched once processing ends. Otherwise, results go to the temporary file
+	 * and are copied into the output file by rawToWavProc().
+	 */
+
+	protected boolean fileOutDirect = true;
+
+	/*
+	 * Output header layout: fileOutRf64 is set by fileOutWriteHeader() when the data does not fit a 32-bit RIFF header,
+	 * fileOutDataBegin is the header size (offset of the audio data in the output file).
+	 */
+
+	protected boolean fileOutRf64 = false;
+	protected long fileOutDataBegin = 44L;
+
+	/*
+	 * Parallel processing: the audio data region is split into block-aligned segments, processed on a ForkJoinPool
+	 * of dspParallelism threads (see dspLoopParallel()). Backward runs write every block to its mirrored offset.
+	 */
+
+	protected int dspParallelism = 1;
+
+	/*
+	 * Pipelined processing: sequential runs (forward or backward) read, process and write blocks on three threads
+	 * connected by an AudioBlockRing, so I/O and DSP overlap (see dspLoopPipelined()).
+	 * On by default when there is more than one processor.
+	 */
+
+	protected boolean dspPipelined = (Runtime.getRuntime().availableProcessors() > 1);
+
 	protected long fileTempSize = 0L;
 	protected long fileTempPos = 0L;
 
+	/*
+	 * Stage timings of the current job (filled by initialize(), runDSP() and runStream()). If metricsReportDir is set,
+	 * a JSON report is written there when the job ends.
+	 */
+
+	protected final AudioMetrics metrics = new AudioMetrics();
+	protected String metricsReportDir = "";
+
+	/*
+	 * Progress and cancellation: dspBlockDone() runs after every block, calls progressListener (throttled)
+	 * and stops the loops once dspCancelled is set. A cancelled runDSP() deletes its partial output.
+	 */
+
+	protected AudioProgressListener progressListener = null;
+	protected volatile boolean dspCancelled = false;
+
+	/*
+	 * Optional result cache: runDSP() serves the output from it when the same input was already processed with the same
+	 * effect and parameters, and stores every output it renders (see AudioResultCache).
+	 */
+
+	protected AudioResultCache resultCache = null;
+	protected boolean resultCacheHit = false;
+
+	private final AtomicLong progressNext = new AtomicLong(0L);
+	private final Object progressLock = new Object();
+
 	public AudioBaseClass(String fileInDir)
 	{
 		this.fileInDir = fileInDir;
@@ -77,11 +231,30 @@ public abstract class AudioBaseClass
 		this.fileOutDir = fileOutDir;
 	}
 
+	private static AudioSimdKernels simdKernelsLoad()
+	{
+		if(!Boolean.parseBoolean(System.getProperty("audiofx.simd", "true"))) return null;
+
+		try
+		{
+			return (AudioSimdKernels) Class.forName("AudioVectorKernels").getDeclaredConstructor().newInstance();
+		}
+		catch(Throwable e)
+		{
+			/*Class not compiled, or module not added (NoClassDefFoundError).*/
+			return null;
+		}
+	}
+
 	public boolean initialize()
 	{
+		long time = 0L;
+
 		if(this.status == Status.INITIALIZED) return true;
 
 		this.status = Status.UNINITIALIZED;
+		this.metrics.reset();
+		this.dspCancelled = false;
 
 		if(!this.fileExtCheck(this.fileInDir)) return false;
 
@@ -91,14 +264,17 @@ public abstract class AudioBaseClass
 			return false;
 		}
 
+		time = System.nanoTime();
+
 		if(!this.fileInGetParams())
 		{
 			this.fileInClose();
 			return false;
 		}
 
-		this.bufferSizeSamples = this.bufferSizeFrames*this.nChannels;
-		this.bufferSizeBytes = this.bufferSizeSamples*this.bitDepth/8;
+		this.metrics.add(AudioMetrics.Stages.HEADER, (System.nanoTime() - time), this.audioDataBegin);
+
+		this.bufferSizeInit();
 
 		this.status = Status.INITIALIZED;
 		return true;
@@ -109,10 +285,231 @@ public abstract class AudioBaseClass
 		this.status = Status.UNINITIALIZED;
 		this.fileInClose();
 		this.fileOutClose();
-		this.fileTempClose();
+		this.fileTempDelete();
+	}
+
+	/*
+	 * Runs the effect over the whole file: effects only provide dspBlockProcess(), the reading, decoding, encoding
+	 * and writing of blocks is done here, once for all effects.
+	 */
+
+	public boolean runDSP()
+	{
+		AudioEvents.Job event = null;
+		ObjectName mbeanName = null;
+		boolean done = false;
+
+		if(this.status != Status.INITIALIZED) return false;
+
+		if(!this.dspStreamCheck()) return false;
+
+		if(JFR_EVENTS) event = AudioEvents.jobBegin();
+		mbeanName = AudioMonitor.register("Job", new AudioMonitor.Job(this));
+
+		done = this.dspRun();
+
+		AudioMonitor.unregister(mbeanName);
+		if(event != null) AudioEvents.jobEnd(event, this, done);
+
+		return done;
+	}
+
+	/*
+	 * runDSP() once the stream has been checked: output, block loop, output header, metrics report.
+	 */
+
+	protected boolean dspRun()
+	{
+		String cacheKey = null;
+		long time = 0L;
+		boolean done = false;
+
+		this.metrics.jobBegin();
+		this.resultCacheHit = false;
+
+		if(this.resultCache != null)
+		{
+			time = System.nanoTime();
+
+			cacheKey = this.resultCache.key(this);
+			if(cacheKey != null) this.resultCacheHit = this.resultCache.fetch(cacheKey, this.fileOutDir);
+
+			this.metrics.add(AudioMetrics.Stages.CACHE, (System.nanoTime() - time), (this.audioDataEnd - this.audioDataBegin));
+
+			if(this.resultCacheHit) return this.dspRunEnd();
+		}
+
+		if(!this.dspOutputOpen())
+		{
+			this.errMsg = "AudioBaseClass.runDSP: Error: failed to create output file.";
+			return false;
+		}
+
+		if(this.dspParallelism > 1) done = this.dspLoopParallel(this.dspReverseOrder());
+		else if(this.dspReverseOrder()) done = this.dspPipelined ? this.dspLoopPipelined(true) : this.dspLoopBackward();
+		else done = this.dspPipelined ? this.dspLoopPipelined(false) : this.dspLoopForward();
+
+		if(done) done = this.dspOutputFinish();
+		else this.dspOutputClose();
+
+		if(this.dspCancelled)
+		{
+			/*Cancelled: no partial output is left behind.*/
+			this.fileOutClose();
+			this.fileTempDelete();
+			FileManager.fileDelete(this.fileOutDir);
+
+			this.errMsg = "AudioBaseClass.dspRun: Error: job cancelled.";
+			return false;
+		}
+
+		if(!done) return false;
+
+		if(cacheKey != null)
+		{
+			/*A failed store only costs a later miss: the job itself succeeded.*/
+			time = System.nanoTime();
+			this.resultCache.store(cacheKey, this.fileOutDir);
+			this.metrics.add(AudioMetrics.Stages.CACHE, (System.nanoTime() - time), FileManager.fileGetSize(this.fileOutDir));
+		}
+
+		return this.dspRunEnd();
+	}
+
+	/*
+	 * End of a successful runDSP(): frame count, final progress callback, metrics report.
+	 */
+
+	protected boolean dspRunEnd()
+	{
+		this.metrics.addFrames((this.audioDataEnd - this.audioDataBegin)/((long) (this.nChannels*this.bitDepth/8)));
+		this.metrics.jobEnd();
+
+		if(this.progressListener != null) this.progressListener.progress(this, this.getBytesProcessed(), this.getBytesTotal());
+
+		return this.metricsReportWrite();
+	}
+
+	/*
+	 * Streaming mode: reads a .wav stream from "input" and writes the processed .wav stream to "output", front to back,
+	 * without seeking and without any file. Only for effects that process the blocks in file order (not "reverse").
+	 *
+	 * A data chunk size of 0 or 0xFFFFFFFF (as written by streaming encoders) means the data runs until the end of
+	 * the input; the output header then gets 0xFFFFFFFF placeholder sizes.
+	 * Does not close the streams.
+	 */
+
+	public boolean runStream(InputStream input, OutputStream output)
+	{
+		AudioEvents.Job event = null;
+		ObjectName mbeanName = null;
+		boolean done = false;
+
+		if(JFR_EVENTS) event = AudioEvents.jobBegin();
+		mbeanName = AudioMonitor.register("Job", new AudioMonitor.Job(this));
+
+		done = this.streamRun(input, output);
+
+		AudioMonitor.unregister(mbeanName);
+		if(event != null) AudioEvents.jobEnd(event, this, done);
+
+		return done;
 	}
 
-	public abstract boolean runDSP();
+	protected boolean streamRun(InputStream input, OutputStream output)
+	{
+		byte[] byteBuffer = null;
+		int[] buffer = null;
+
+		long audioDataSize = 0L;
+		long nBytesRemaining = 0L;
+		long nBytesTotal = 0L;
+		long time = 0L;
+		int frameSizeBytes = 0;
+		int nBytes = 0;
+		AudioEvents.Block block = null;
+
+		this.status = Status.UNINITIALIZED;
+		this.metrics.reset();
+		this.metrics.jobBegin();
+		this.dspCancelled = false;
+
+		time = System.nanoTime();
+
+		if(!this.streamGetParams(input)) return false;
+
+		this.metrics.add(AudioMetrics.Stages.HEADER, (System.nanoTime() - time), this.audioDataBegin);
+
+		this.bufferSizeInit();
+		this.status = Status.INITIALIZED;
+
+		if(!this.dspStreamCheck()) return false;
+
+		if(this.dspReverseOrder())
+		{
+			this.errMsg = "AudioBaseClass.streamRun: Error: this effect reads the file backwards, it cannot run on a stream.";
+			return false;
+		}
+
+		frameSizeBytes = this.nChannels*this.bitDepth/8;
+		audioDataSize = (this.audioDataEnd < 0L) ? -1L : (this.audioDataEnd - this.audioDataBegin);
+
+		byteBuffer = new byte[this.bufferSizeBytes];
+		buffer = new int[this.bufferSizeSamples];
+
+		try
+		{
+			output.write(this.headerCreate(audioDataSize, null, headerNeedsRf64(audioDataSize, 0)));
+
+			nBytesRemaining = (audioDataSize < 0L) ? Long.MAX_VALUE : audioDataSize;
+
+			while(nBytesRemaining > 0L)
+			{
+				block = this.dspStageBegin(AudioMetrics.Stages.READ);
+				time = System.nanoTime();
+				nBytes = input.readNBytes(byteBuffer, 0, (int) Math.min((long) this.bufferSizeBytes, nBytesRemaining));
+				if(nBytes <= 0) break;
+
+				this.dspStageDone(AudioMetrics.Stages.READ, time, (long) nBytes, block);
+
+				nBytesRemaining -= (long) nBytes;
+				nBytesTotal += (long) nBytes;
+
+				/*Last block: padded with silence, as fileInRead() does; the padding is not written.*/
+				Arrays.fill(byteBuffer, nBytes, this.bufferSizeBytes, (byte) 0);
+
+				this.dspBlockTransform(byteBuffer, 0, buffer, this.bufferSizeFrames);
+
+				block = this.dspStageBegin(AudioMetrics.Stages.WRITE);
+				time = System.nanoTime();
+				output.write(byteBuffer, 0, (nBytes - nBytes%frameSizeBytes));
+				this.dspStageDone(AudioMetrics.Stages.WRITE, time, (long) (nBytes - nBytes%frameSizeBytes), block);
+
+				if(!this.dspBlockDone()) break;
+			}
+
+			output.flush();
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioBaseClass.streamRun: Error: stream read/write failed.";
+			return false;
+		}
+
+		/*A stream cannot be taken back: cancelling just ends it early.*/
+		if(this.dspCancelled)
+		{
+			this.errMsg = "AudioBaseClass.streamRun: Error: job cancelled.";
+			return false;
+		}
+
+		this.metrics.addFrames(nBytesTotal/((long) frameSizeBytes));
+		this.metrics.jobEnd();
+
+		if(this.progressListener != null) this.progressListener.progress(this, this.getBytesProcessed(), this.getBytesTotal());
+
+		return this.metricsReportWrite();
+	}
 
 	public String getLastErrorMessage()
 	{
@@ -140,6 +537,28 @@ public abstract class AudioBaseClass
 		return this.errMsg;
 	}
 
+	/*
+	 * Chunks of the input file, in file order (filled by initialize()).
+	 */
+
+	public List<ChunkInfo> getChunkIndex()
+	{
+		return Collections.unmodifiableList(this.chunkIndex);
+	}
+
+	/*
+	 * First chunk of the input file with the given id, or null.
+	 */
+
+	public ChunkInfo findChunk(String chunkId)
+	{
+		for(ChunkInfo chunk : this.chunkIndex)
+			if(chunk.id.equals(chunkId))
+				return chunk;
+
+		return null;
+	}
+
 	public int getSampleRate()
 	{
 		return this.sampleRate;
@@ -155,368 +574,1875 @@ public abstract class AudioBaseClass
 		return this.nChannels;
 	}
 
-	protected boolean fileExtCheck(String fileDir)
+	public void setInputMapping(boolean enable)
 	{
-		Scanner stdin = null;
-		String userCmd = "";
-		String auxdir = "";
-		int dirlen = 0;
+		this.fileInMapEnabled = enable;
+	}
 
-		auxdir = fileDir.toLowerCase();
-		dirlen = auxdir.length();
+	public boolean getInputMapping()
+	{
+		return this.fileInMapEnabled;
+	}
 
-		if(dirlen >= 5)
-			if(compareSignature(".wav".toCharArray(), auxdir.toCharArray(), (dirlen - 4)))
-				return true;
+	public void setDirectOutput(boolean enable)
+	{
+		this.fileOutDirect = enable;
+	}
 
-		stdin = new Scanner(System.in);
+	public boolean getDirectOutput()
+	{
+		return this.fileOutDirect;
+	}
 
-		while(true)
+	public void setInteractive(boolean enable)
+	{
+		this.interactive = enable;
+	}
+
+	public void setScratchDirectory(String scratchDir)
+	{
+		this.scratchDir = scratchDir;
+	}
+
+	public String getScratchDirectory()
+	{
+		return this.scratchDir;
+	}
+
+	/*
+	 * Block size in frames. Takes effect on the next initialize().
+	 */
+
+	public boolean setBufferSize(int nFrames)
+	{
+		if((nFrames < BUFFER_SIZE_FRAMES_MIN) || (nFrames > BUFFER_SIZE_FRAMES_MAX))
 		{
-			System.out.print("WARNING: File does not have a \".wav\" extension. Might be incompatible with this application.\nDo you wish to continue? (yes/no): ");
+			this.errMsg = "AudioBaseClass.setBufferSize: Error: block size must be between " + BUFFER_SIZE_FRAMES_MIN + " and " + BUFFER_SIZE_FRAMES_MAX + " frames.";
+			return false;
+		}
 
-			userCmd = stdin.nextLine();
-			userCmd = userCmd.toLowerCase();
+		this.bufferSizeFrames = nFrames;
+		this.bufferSizeTarget = 0;
+		return true;
+	}
 
-			if(userCmd.equals("no"))
-			{
-				stdin.close();
-				this.status = Status.ERROR_FILENOTSUPPORTED;
-				return false;
-			}
-			
-			if(userCmd.equals("yes"))
-			{
-				stdin.close();
-				return true;
-			}
+	/*
+	 * Block size in bytes (as stored by AudioBufferTuner), rounded down to whole frames of the input format.
+	 * Takes effect on the next initialize().
+	 */
 
-			System.out.println("Error: invalid command entered.");
+	public boolean setBufferSizeBytes(int nBytes)
+	{
+		if((nBytes < BUFFER_SIZE_BYTES_MIN) || (((long) nBytes) > FILEIN_MAP_WINDOW_SIZE))
+		{
+			this.errMsg = "AudioBaseClass.setBufferSizeBytes: Error: block size must be between " + BUFFER_SIZE_BYTES_MIN + " and " + FILEIN_MAP_WINDOW_SIZE + " bytes.";
+			return false;
 		}
+
+		this.bufferSizeTarget = nBytes;
+		return true;
 	}
 
-	protected boolean fileInOpen()
+	public int getBufferSize()
 	{
-		this.fileInClose();
+		return this.bufferSizeFrames;
+	}
 
-		try
+	public void setProgressListener(AudioProgressListener listener)
+	{
+		this.progressListener = listener;
+	}
+
+	/*
+	 * Asks the running (or next) job to stop at the next block boundary. Thread-safe.
+	 */
+
+	public void cancel()
+	{
+		this.dspCancelled = true;
+	}
+
+	public boolean isCancelled()
+	{
+		return this.dspCancelled;
+	}
+
+	/*
+	 * Audio data size in bytes, -1 if unknown (stream without data size).
+	 */
+
+	public long getBytesTotal()
+	{
+		if(this.audioDataEnd < 0L) return -1L;
+
+		return (this.audioDataEnd - this.audioDataBegin);
+	}
+
+	/*
+	 * Audio data bytes written so far by the current job.
+	 */
+
+	public long getBytesProcessed()
+	{
+		final long BYTES_TOTAL = this.getBytesTotal();
+		final long BYTES_WRITTEN = this.metrics.getBytes(AudioMetrics.Stages.WRITE);
+
+		if(this.resultCacheHit) return BYTES_TOTAL;
+
+		/*The last block of a file may count its padding.*/
+		return (BYTES_TOTAL < 0L) ? BYTES_WRITTEN : Math.min(BYTES_WRITTEN, BYTES_TOTAL);
+	}
+
+	public AudioMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+
+	/*
+	 * Path of the JSON metrics report written at the end of every run, or "" for no report.
+	 */
+
+	public void setMetricsReport(String reportDir)
+	{
+		this.metricsReportDir = reportDir;
+	}
+
+	public String getMetricsReport()
+	{
+		return this.metricsReportDir;
+	}
+
+	/*
+	 * Result cache for runDSP(), or null for none. One cache can be shared by any number of jobs and threads.
+	 */
+
+	public void setResultCache(AudioResultCache cache)
+	{
+		this.resultCache = cache;
+	}
+
+	public AudioResultCache getResultCache()
+	{
+		return this.resultCache;
+	}
+
+	/*
+	 * True if the last runDSP() output came from the result cache.
+	 */
+
+	public boolean getResultCacheHit()
+	{
+		return this.resultCacheHit;
+	}
+
+	public boolean setParallelism(int nThreads)
+	{
+		if(nThreads < 1)
 		{
-			this.fileIn = new RandomAccessFile(this.fileInDir, "r");
-			this.fileInSize = this.fileIn.length();
+			this.errMsg = "AudioBaseClass.setParallelism: Error: number of threads must be at least 1.";
+			return false;
+		}
+
+		this.dspParallelism = nThreads;
+		return true;
+	}
+
+	public int getParallelism()
+	{
+		return this.dspParallelism;
+	}
+
+	public void setPipelining(boolean enable)
+	{
+		this.dspPipelined = enable;
+	}
+
+	public boolean getPipelining()
+	{
+		return this.dspPipelined;
+	}
+
+	protected boolean fileExtCheck(String fileDir)
+	{
+		Scanner stdin = null;
+		String userCmd = "";
+		String auxdir = "";
+		int dirlen = 0;
+
+		auxdir = fileDir.toLowerCase();
+		dirlen = auxdir.length();
+
+		if(dirlen >= 5)
+			if(compareSignature(".wav".toCharArray(), auxdir.toCharArray(), (dirlen - 4)))
+				return true;
+
+		if(!this.interactive)
+		{
+			this.status = Status.ERROR_FILENOTSUPPORTED;
+			return false;
+		}
+
+		stdin = new Scanner(System.in);
+
+		while(true)
+		{
+			System.out.print("WARNING: File does not have a \".wav\" extension. Might be incompatible with this application.\nDo you wish to continue? (yes/no): ");
+
+			userCmd = stdin.nextLine();
+			userCmd = userCmd.toLowerCase();
+
+			if(userCmd.equals("no"))
+			{
+				stdin.close();
+				this.status = Status.ERROR_FILENOTSUPPORTED;
+				return false;
+			}
+			
+			if(userCmd.equals("yes"))
+			{
+				stdin.close();
+				return true;
+			}
+
+			System.out.println("Error: invalid command entered.");
+		}
+	}
+
+	protected boolean fileInOpen()
+	{
+		this.fileInClose();
+
+		try
+		{
+			this.fileIn = new RandomAccessFile(this.fileInDir, "r");
+			this.fileInSize = this.fileIn.length();
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	protected boolean fileInClose()
+	{
+		if(this.fileIn == null) return false;
+
+		try
+		{
+			this.fileIn.close();
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		this.fileIn = null;
+		this.fileInSize = 0L;
+
+		this.fileInChannel = null;
+		this.fileInMap = null;
+		this.fileInMapBegin = 0L;
+		this.fileInMapEnd = 0L;
+
+		return true;
+	}
+
+	/*
+	 * Reads buffer.length bytes of audio data starting at file position "position".
+	 * Anything beyond the end of the audio data region is returned as zeros.
+	 */
+
+	protected boolean fileInRead(byte[] buffer, long position)
+	{
+		return this.fileInRead(buffer, 0, buffer.length, position);
+	}
+
+	/*
+	 * Reads "length" bytes at "position" into buffer[offset...].
+	 */
+
+	protected boolean fileInRead(byte[] buffer, int offset, int length, long position)
+	{
+		Arrays.fill(buffer, offset, (offset + length), (byte) 0);
+
+		length = this.fileInDataLength(position, length);
+		if(length <= 0) return true;
+
+		if(this.fileInMapEnabled)
+		{
+			if(this.fileInMapRead(buffer, offset, position, length)) return true;
+
+			/*Mapping failed: fall back to regular reads for the rest of this file.*/
+			this.fileInMapEnabled = false;
+			this.fileInMap = null;
+		}
+
+		try
+		{
+			this.fileIn.seek(position);
+			this.fileIn.readFully(buffer, offset, length);
+		}
+		catch(EOFException eof_e)
+		{
+			/*IGNORE*/
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Number of bytes of "length" at "position" that are audio data in the file: what fileInRead() actually reads.
+	 */
+
+	protected int fileInDataLength(long position, int length)
+	{
+		final long DATA_END = Math.min(this.audioDataEnd, this.fileInSize);
+
+		if(position >= DATA_END) return 0;
+
+		return (int) Math.min((long) length, (DATA_END - position));
+	}
+
+	protected boolean fileInMapRead(byte[] buffer, int offset, long position, int length)
+	{
+		int nBytes = 0;
+
+		while(length > 0)
+		{
+			if(!this.fileInMapWindow(position)) return false;
+
+			nBytes = (int) Math.min((long) length, (this.fileInMapEnd - position));
+			this.fileInMap.get((int) (position - this.fileInMapBegin), buffer, offset, nBytes);
+
+			offset += nBytes;
+			position += (long) nBytes;
+			length -= nBytes;
+		}
+
+		return true;
+	}
+
+	protected boolean fileInMapWindow(long position)
+	{
+		if(this.fileInMap != null)
+			if((position >= this.fileInMapBegin) && (position < this.fileInMapEnd))
+				return true;
+
+		this.fileInMap = null;
+
+		this.fileInMapBegin = position - ((position - this.audioDataBegin)%FILEIN_MAP_WINDOW_SIZE);
+		this.fileInMapEnd = Math.min((this.fileInMapBegin + FILEIN_MAP_WINDOW_SIZE), Math.min(this.audioDataEnd, this.fileInSize));
+
+		try
+		{
+			if(this.fileInChannel == null) this.fileInChannel = this.fileIn.getChannel();
+			this.fileInMap = this.fileInChannel.map(FileChannel.MapMode.READ_ONLY, this.fileInMapBegin, (this.fileInMapEnd - this.fileInMapBegin));
+		}
+		catch(Exception e)
+		{
+			this.fileInMapBegin = 0L;
+			this.fileInMapEnd = 0L;
+			return false;
+		}
+
+		return true;
+	}
+
+	protected boolean fileOutCreate()
+	{
+		this.fileOutClose();
+
+		this.fileOutRf64 = false;
+		this.fileOutDataBegin = (long) (28 + (this.fmtExtensible ? 40 : 16));
+
+		if(!FileManager.fileCreate(this.fileOutDir)) return false;
+
+		try
+		{
+			this.fileOut = new RandomAccessFile(this.fileOutDir, "rw");
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	protected boolean fileOutClose()
+	{
+		if(this.fileOut == null) return false;
+
+		try
+		{
+			this.fileOut.close();
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		this.fileOut = null;
+		return true;
+	}
+
+	protected boolean fileTempCreate()
+	{
+		this.fileTempClose();
+
+		if(this.fileTempDir.equals(""))
+		{
+			try
+			{
+				this.fileTempDir = File.createTempFile(FILETEMP_PREFIX, FILETEMP_SUFFIX, (this.scratchDir.equals("") ? null : new File(this.scratchDir))).getPath();
+			}
+			catch(Exception e)
+			{
+				return false;
+			}
+		}
+		else if(!FileManager.fileCreate(this.fileTempDir)) return false;
+
+		try
+		{
+			this.fileTemp = new RandomAccessFile(this.fileTempDir, "rw");
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	protected boolean fileTempOpen()
+	{
+		this.fileTempClose();
+
+		try
+		{
+			this.fileTemp = new RandomAccessFile(this.fileTempDir, "r");
+			this.fileTempSize = this.fileTemp.length();
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	protected boolean fileTempClose()
+	{
+		if(this.fileTemp == null) return false;
+
+		try
+		{
+			this.fileTemp.close();
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		this.fileTemp = null;
+		this.fileTempSize = 0L;
+
+		return true;
+	}
+
+	protected boolean fileTempDelete()
+	{
+		this.fileTempClose();
+
+		if(this.fileTempDir.equals("")) return true;
+
+		if(!FileManager.fileDelete(this.fileTempDir)) return false;
+
+		this.fileTempDir = "";
+		return true;
+	}
+
+	/*
+	 * Walks the file from chunk to chunk (seeking over the payloads, so chunks of any size can come before "data"),
+	 * and records every chunk in chunkIndex. Only the chunk headers are read, plus the "fmt " and "ds64" fields.
+	 */
+
+	protected boolean fileInGetParams()
+	{
+		byte[] chunkHeader = new byte[12];
+		byte[] chunkFields = new byte[40];
+
+		ChunkInfo dataChunk = null;
+		String chunkId = "";
+		long chunkSize = 0L;
+		long position = 0L;
+		long ds64DataSize = -1L;
+
+		boolean fmtFound = false;
+		boolean rf64 = false;
+
+		this.chunkIndex.clear();
+
+		try
+		{
+			this.fileIn.seek(0L);
+			this.fileIn.readFully(chunkHeader, 0, 12);
+
+			if(!compareSignature("RIFF".toCharArray(), chunkHeader, 0) && !this.compareSignatureRf64(chunkHeader, 0))
+			{
+				this.status = Status.ERROR_FILENOTSUPPORTED;
+				return false;
+			}
+
+			if(!compareSignature("WAVE".toCharArray(), chunkHeader, 8))
+			{
+				this.status = Status.ERROR_FILENOTSUPPORTED;
+				return false;
+			}
+
+			rf64 = this.compareSignatureRf64(chunkHeader, 0);
+
+			position = 12L;
+
+			while((position + 8L) <= this.fileInSize)
+			{
+				this.fileIn.seek(position);
+				this.fileIn.readFully(chunkHeader, 0, 8);
+
+				chunkId = new String(chunkHeader, 0, 4, StandardCharsets.US_ASCII);
+				chunkSize = NumUtils.bytesToU32LE(chunkHeader, 4);
+
+				if(rf64 && chunkId.equals("ds64") && (chunkSize >= 16L))
+				{
+					/*RF64/BW64: 64-bit RIFF size and data size.*/
+					this.fileIn.readFully(chunkFields, 0, 16);
+					ds64DataSize = NumUtils.bytesToI64LE(chunkFields, 8);
+				}
+				else if(chunkId.equals("fmt ") && (chunkSize >= 16L))
+				{
+					this.fileIn.readFully(chunkFields, 0, (int) Math.min(chunkSize, ((long) chunkFields.length)));
+
+					if(!this.fmtChunkParse(chunkFields, (int) Math.min(chunkSize, ((long) chunkFields.length)))) return false;
+
+					fmtFound = true;
+				}
+				else if(chunkId.equals("data") && (chunkSize == RIFF_SIZE_MAX))
+				{
+					/*RF64: the real size is in "ds64". Otherwise a streamed file that never got its size: data runs to the end of the file.*/
+					if(ds64DataSize >= 0L) chunkSize = ds64DataSize;
+					else chunkSize = this.fileInSize - position - 8L;
+				}
+
+				this.chunkIndex.add(new ChunkInfo(chunkId, (position + 8L), chunkSize));
+
+				/*Chunks are padded to an even size.*/
+				position += 8L + chunkSize + (chunkSize%2L);
+			}
+		}
+		catch(EOFException eof_e)
+		{
+			/*Truncated chunk header or fields: checked below.*/
+		}
+		catch(Exception e)
+		{
+			this.status = Status.ERROR_GENERIC;
+			this.errMsg = "AudioBaseClass.fileInGetParams: Error: RandomAccessFile.read failed.";
+			return false;
+		}
+
+		dataChunk = this.findChunk("data");
+
+		if(!fmtFound || (dataChunk == null))
+		{
+			this.status = Status.ERROR_BROKENHEADER;
+			return false;
+		}
+
+		this.audioDataBegin = dataChunk.offset;
+		this.audioDataEnd = dataChunk.offset + dataChunk.size;
+
+		return true;
+	}
+
+	/*
+	 * Reads the "fmt " chunk payload: PCM (16, 24 or 32-bit), IEEE float (32-bit), or WAVE_FORMAT_EXTENSIBLE with either
+	 * sub-format. Sets the stream parameters and format, or the error status.
+	 */
+
+	protected boolean fmtChunkParse(byte[] fmtChunk, int length)
+	{
+		int formatTag = 0;
+		int blockAlign = 0;
+
+		if(length < 16)
+		{
+			this.status = Status.ERROR_BROKENHEADER;
+			return false;
+		}
+
+		formatTag = (int) NumUtils.bytesToU16LE(fmtChunk, 0);
+
+		this.nChannels = (int) NumUtils.bytesToU16LE(fmtChunk, 2);
+		this.sampleRate = (int) NumUtils.bytesToU32LE(fmtChunk, 4);
+		this.bitDepth = (int) NumUtils.bytesToU16LE(fmtChunk, 14);
+		blockAlign = (int) NumUtils.bytesToU16LE(fmtChunk, 12);
+
+		/*Every frame size computation divides by nChannels*bitDepth/8: it must be the real, non-zero frame size.*/
+		if((this.nChannels < 1) || (blockAlign != (this.nChannels*this.bitDepth/8)))
+		{
+			this.status = Status.ERROR_BROKENHEADER;
+			return false;
+		}
+
+		this.fmtExtensible = false;
+		this.channelMask = 0;
+
+		if(formatTag == WAVE_FORMAT_EXTENSIBLE)
+		{
+			if(length < 40)
+			{
+				this.status = Status.ERROR_BROKENHEADER;
+				return false;
+			}
+
+			/*The sub-format GUID starts with the format tag.*/
+			this.fmtExtensible = true;
+			this.channelMask = (int) NumUtils.bytesToU32LE(fmtChunk, 20);
+			formatTag = (int) NumUtils.bytesToU16LE(fmtChunk, 24);
+		}
+
+		this.format = Formats.UNSUPPORTED;
+
+		if(formatTag == WAVE_FORMAT_PCM)
+		{
+			switch(this.bitDepth)
+			{
+				case 16:
+					this.format = Formats.I16;
+					break;
+
+				case 24:
+					this.format = Formats.I24;
+					break;
+
+				case 32:
+					this.format = Formats.I32;
+					break;
+			}
+		}
+		else if((formatTag == WAVE_FORMAT_IEEE_FLOAT) && (this.bitDepth == 32)) this.format = Formats.F32;
+
+		if(this.format == Formats.UNSUPPORTED)
+		{
+			this.status = Status.ERROR_FORMATNOTSUPPORTED;
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * fileInGetParams() for streams: reads the header chunks up to the start of the "data" chunk's samples.
+	 * audioDataBegin/audioDataEnd are stream offsets; audioDataEnd is -1 if the data size is unknown.
+	 */
+
+	protected boolean streamGetParams(InputStream input)
+	{
+		final int FMT_CHUNK_SIZE_MAX = 0x10000;
+
+		byte[] chunkHeader = new byte[12];
+		byte[] fmtChunk = null;
+		byte[] ds64Chunk = null;
+		long chunkSize = 0L;
+		long position = 0L;
+
+		try
+		{
+			if(input.readNBytes(chunkHeader, 0, 12) < 12)
+			{
+				this.status = Status.ERROR_FILENOTSUPPORTED;
+				return false;
+			}
+
+			if((!compareSignature("RIFF".toCharArray(), chunkHeader, 0) && !this.compareSignatureRf64(chunkHeader, 0)) || !compareSignature("WAVE".toCharArray(), chunkHeader, 8))
+			{
+				this.status = Status.ERROR_FILENOTSUPPORTED;
+				return false;
+			}
+
+			position = 12L;
+
+			while(true)
+			{
+				if(input.readNBytes(chunkHeader, 0, 8) < 8)
+				{
+					this.status = Status.ERROR_BROKENHEADER;
+					return false;
+				}
+
+				position += 8L;
+				chunkSize = NumUtils.bytesToU32LE(chunkHeader, 4);
+
+				if(compareSignature("data".toCharArray(), chunkHeader, 0)) break;
+
+				if(compareSignature("fmt ".toCharArray(), chunkHeader, 0))
+				{
+					if((chunkSize < 16L) || (chunkSize > ((long) FMT_CHUNK_SIZE_MAX)))
+					{
+						this.status = Status.ERROR_BROKENHEADER;
+						return false;
+					}
+
+					fmtChunk = input.readNBytes((int) chunkSize);
+					if(fmtChunk.length < ((int) chunkSize))
+					{
+						this.status = Status.ERROR_BROKENHEADER;
+						return false;
+					}
+				}
+				else if(compareSignature("ds64".toCharArray(), chunkHeader, 0) && (chunkSize >= 24L) && (chunkSize <= ((long) FMT_CHUNK_SIZE_MAX)))
+				{
+					ds64Chunk = input.readNBytes((int) chunkSize);
+				}
+				else input.skipNBytes(chunkSize);
+
+				/*Chunks are padded to an even size.*/
+				if((chunkSize%2L) != 0L) input.skipNBytes(1L);
+
+				position += chunkSize + (chunkSize%2L);
+			}
+		}
+		catch(EOFException eof_e)
+		{
+			this.status = Status.ERROR_BROKENHEADER;
+			return false;
+		}
+		catch(Exception e)
+		{
+			this.status = Status.ERROR_GENERIC;
+			this.errMsg = "AudioBaseClass.streamGetParams: Error: InputStream.read failed.";
+			return false;
+		}
+
+		if(fmtChunk == null)
+		{
+			this.status = Status.ERROR_BROKENHEADER;
+			return false;
+		}
+
+		if(!this.fmtChunkParse(fmtChunk, fmtChunk.length)) return false;
+
+		if((chunkSize == RIFF_SIZE_MAX) && (ds64Chunk != null) && (ds64Chunk.length >= 16)) chunkSize = NumUtils.bytesToI64LE(ds64Chunk, 8);
+
+		this.audioDataBegin = position;
+		if((chunkSize == 0L) || (chunkSize == RIFF_SIZE_MAX)) this.audioDataEnd = -1L;
+		else this.audioDataEnd = position + chunkSize;
+
+		return true;
+	}
+
+	protected boolean fileOutWriteHeader(long audioDataSize)
+	{
+		return this.fileOutWriteHeader(audioDataSize, null);
+	}
+
+	/*
+	 * extraChunks: complete chunks (id, size, payload) to be placed between the "fmt " and "data" chunks, or null.
+	 */
+
+	protected boolean fileOutWriteHeader(long audioDataSize, byte[] extraChunks)
+	{
+		byte[] headerInfo = null;
+
+		/*Once promoted to RF64, the header keeps its size: rewriting it must not move the audio data.*/
+		if(!this.fileOutRf64) this.fileOutRf64 = headerNeedsRf64(audioDataSize, ((extraChunks == null) ? 0 : extraChunks.length));
+
+		headerInfo = this.headerCreate(audioDataSize, extraChunks, this.fileOutRf64);
+
+		try
+		{
+			this.fileOut.seek(0L);
+			this.fileOut.write(headerInfo);
+		}
+		catch(Exception e)
+		{
+			this.status = Status.ERROR_GENERIC;
+			this.errMsg = "AudioBaseClass.fileOutWriteHeader: Error: RandomAccessFile.write failed.";
+			return false;
+		}
+
+		this.fileOutPos = (long) headerInfo.length;
+		this.fileOutDataBegin = (long) headerInfo.length;
+
+		return true;
+	}
+
+	/*
+	 * Builds the output file header. audioDataSize < 0: unknown size, 0xFFFFFFFF placeholder sizes (streaming).
+	 * rf64: RF64 header (EBU Tech 3306), "ds64" chunk with the 64-bit sizes right after "WAVE", and 0xFFFFFFFF
+	 * in the 32-bit size fields.
+	 */
+
+	protected byte[] headerCreate(long audioDataSize, byte[] extraChunks, boolean rf64)
+	{
+		final int EXTRA_SIZE = (extraChunks == null) ? 0 : extraChunks.length;
+		final int DS64_SIZE = rf64 ? 36 : 0;
+		final int FMT_SIZE = this.fmtExtensible ? 40 : 16;
+		final int FORMAT_TAG = (this.format == Formats.F32) ? WAVE_FORMAT_IEEE_FLOAT : WAVE_FORMAT_PCM;
+		final int FRAME_SIZE_BYTES = this.nChannels*this.bitDepth/8;
+
+		/*KSDATAFORMAT_SUBTYPE_PCM/IEEE_FLOAT GUID, after the 2-byte format tag.*/
+		final byte[] SUBFORMAT_GUID_TAIL = {0x00, 0x00, 0x00, 0x00, 0x10, 0x00, (byte) 0x80, 0x00, 0x00, (byte) 0xaa, 0x00, 0x38, (byte) 0x9b, 0x71};
+
+		byte[] headerInfo = new byte[28 + FMT_SIZE + DS64_SIZE + EXTRA_SIZE];
+		int bytepos = 0;
+
+		headerInfo[0] = (byte) 'R';
+		headerInfo[1] = (byte) (rf64 ? 'F' : 'I');
+		headerInfo[2] = (byte) (rf64 ? '6' : 'F');
+		headerInfo[3] = (byte) (rf64 ? '4' : 'F');
+
+		if(rf64 || (audioDataSize < 0L)) NumUtils.n32ToBytesLE(0xffffffff, headerInfo, 4);
+		else NumUtils.n32ToBytesLE((int) (audioDataSize + ((long) headerInfo.length) - 8L), headerInfo, 4);
+
+		headerInfo[8] = (byte) 'W';
+		headerInfo[9] = (byte) 'A';
+		headerInfo[10] = (byte) 'V';
+		headerInfo[11] = (byte) 'E';
+
+		if(rf64)
+		{
+			headerInfo[12] = (byte) 'd';
+			headerInfo[13] = (byte) 's';
+			headerInfo[14] = (byte) '6';
+			headerInfo[15] = (byte) '4';
+
+			NumUtils.n32ToBytesLE(28, headerInfo, 16);
+
+			NumUtils.n64ToBytesLE((((long) headerInfo.length) - 8L + Math.max(audioDataSize, 0L)), headerInfo, 20);
+			NumUtils.n64ToBytesLE(Math.max(audioDataSize, 0L), headerInfo, 28);
+			NumUtils.n64ToBytesLE((Math.max(audioDataSize, 0L)/((long) FRAME_SIZE_BYTES)), headerInfo, 36);
+			NumUtils.n32ToBytesLE(0, headerInfo, 44);
+		}
+
+		bytepos = 12 + DS64_SIZE;
+
+		headerInfo[bytepos] = (byte) 'f';
+		headerInfo[bytepos + 1] = (byte) 'm';
+		headerInfo[bytepos + 2] = (byte) 't';
+		headerInfo[bytepos + 3] = (byte) ' ';
+
+		NumUtils.n32ToBytesLE(FMT_SIZE, headerInfo, (bytepos + 4));
+
+		NumUtils.n16ToBytesLE((short) (this.fmtExtensible ? WAVE_FORMAT_EXTENSIBLE : FORMAT_TAG), headerInfo, (bytepos + 8));
+
+		NumUtils.n16ToBytesLE((short) this.nChannels, headerInfo, (bytepos + 10));
+
+		NumUtils.n32ToBytesLE(this.sampleRate, headerInfo, (bytepos + 12));
+
+		NumUtils.n32ToBytesLE((this.sampleRate*FRAME_SIZE_BYTES), headerInfo, (bytepos + 16));
+
+		NumUtils.n16ToBytesLE((short) FRAME_SIZE_BYTES, headerInfo, (bytepos + 20));
+
+		NumUtils.n16ToBytesLE((short) this.bitDepth, headerInfo, (bytepos + 22));
+
+		if(this.fmtExtensible)
+		{
+			NumUtils.n16ToBytesLE((short) 22, headerInfo, (bytepos + 24));
+			NumUtils.n16ToBytesLE((short) this.bitDepth, headerInfo, (bytepos + 26));
+			NumUtils.n32ToBytesLE(this.channelMask, headerInfo, (bytepos + 28));
+			NumUtils.n16ToBytesLE((short) FORMAT_TAG, headerInfo, (bytepos + 32));
+			System.arraycopy(SUBFORMAT_GUID_TAIL, 0, headerInfo, (bytepos + 34), SUBFORMAT_GUID_TAIL.length);
+		}
+
+		bytepos += 8 + FMT_SIZE;
+
+		if(EXTRA_SIZE > 0) System.arraycopy(extraChunks, 0, headerInfo, bytepos, EXTRA_SIZE);
+
+		bytepos += EXTRA_SIZE;
+
+		headerInfo[bytepos] = (byte) 'd';
+		headerInfo[bytepos + 1] = (byte) 'a';
+		headerInfo[bytepos + 2] = (byte) 't';
+		headerInfo[bytepos + 3] = (byte) 'a';
+
+		if(rf64 || (audioDataSize < 0L)) NumUtils.n32ToBytesLE(0xffffffff, headerInfo, (bytepos + 4));
+		else NumUtils.n32ToBytesLE((int) audioDataSize, headerInfo, (bytepos + 4));
+
+		return headerInfo;
+	}
+
+	/*
+	 * True if a header for audioDataSize bytes of data does not fit the 32-bit RIFF sizes.
+	 */
+
+	protected boolean headerNeedsRf64(long audioDataSize, int extraChunksSize)
+	{
+		final int FMT_SIZE = this.fmtExtensible ? 40 : 16;
+
+		return ((audioDataSize + ((long) (20 + FMT_SIZE + extraChunksSize))) > RIFF_SIZE_MAX);
+	}
+
+	protected boolean compareSignatureRf64(byte[] buf, int offset)
+	{
+		return (compareSignature("RF64".toCharArray(), buf, offset) || compareSignature("BW64".toCharArray(), buf, offset));
+	}
+
+	protected boolean compareSignature(char[] auth, byte[] buf, int offset)
+	{
+		if(auth == null) return false;
+		if(buf == null) return false;
+
+		if(offset < 0) return false;
+		if(auth.length < 4) return false;
+		if(buf.length < (offset + 4)) return false;
+
+		if(auth[0] != buf[offset]) return false;
+		if(auth[1] != buf[offset + 1]) return false;
+		if(auth[2] != buf[offset + 2]) return false;
+		if(auth[3] != buf[offset + 3]) return false;
+
+		return true;
+	}
+
+	protected boolean compareSignature(char[] auth, char[] buf, int offset)
+	{
+		if(auth == null) return false;
+		if(buf == null) return false;
+
+		if(offset < 0) return false;
+		if(auth.length < 4) return false;
+		if(buf.length < (offset + 4)) return false;
+
+		if(auth[0] != buf[offset]) return false;
+		if(auth[1] != buf[offset + 1]) return false;
+		if(auth[2] != buf[offset + 2]) return false;
+		if(auth[3] != buf[offset + 3]) return false;
+
+		return true;
+	}
+
+	/*
+	 * dspOutput...() methods: output side of runDSP().
+	 * dspOutputOpen() before the DSP loop, dspOutputWrite() once per processed block, dspOutputFinish() on success,
+	 * dspOutputClose() on failure.
+	 */
+
+	protected boolean dspOutputOpen()
+	{
+		if(!this.fileOutDirect)
+		{
+			if(!this.fileTempCreate()) return false;
+
+			this.fileTempPos = 0L;
+			return true;
+		}
+
+		if(!this.fileOutCreate()) return false;
+
+		if(!this.fileOutWriteHeader(this.audioDataEnd - this.audioDataBegin))
+		{
+			this.fileOutClose();
+			return false;
+		}
+
+		try
+		{
+			this.fileOut.setLength(this.fileOutDataBegin + this.audioDataEnd - this.audioDataBegin);
+		}
+		catch(Exception e)
+		{
+			this.fileOutClose();
+			return false;
+		}
+
+		return true;
+	}
+
+	protected boolean dspOutputWrite(byte[] buffer)
+	{
+		return this.dspOutputWrite(buffer, buffer.length);
+	}
+
+	/*
+	 * Writes the first "length" bytes of buffer.
+	 */
+
+	protected boolean dspOutputWrite(byte[] buffer, int length)
+	{
+		long fileOutEnd = 0L;
+
+		if(!this.fileOutDirect)
+		{
+			try
+			{
+				this.fileTemp.seek(this.fileTempPos);
+				this.fileTemp.write(buffer, 0, length);
+			}
+			catch(Exception e)
+			{
+				return false;
+			}
+
+			this.fileTempPos += (long) length;
+			return true;
+		}
+
+		/*The output is exactly as long as the input audio data: the padding of the last block is dropped.*/
+
+		fileOutEnd = this.fileOutDataBegin + this.audioDataEnd - this.audioDataBegin;
+		if(this.fileOutPos >= fileOutEnd) return true;
+
+		if((this.fileOutPos + ((long) length)) > fileOutEnd) length = (int) (fileOutEnd - this.fileOutPos);
+
+		try
+		{
+			this.fileOut.seek(this.fileOutPos);
+			this.fileOut.write(buffer, 0, length);
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		this.fileOutPos += (long) length;
+		return true;
+	}
+
+	protected boolean dspOutputFinish()
+	{
+		final long FILEOUT_SIZE = this.fileOutPos;
+
+		if(!this.fileOutDirect)
+		{
+			this.fileTempClose();
+			return this.rawToWavProc();
+		}
+
+		if(!this.fileOutWriteHeader(FILEOUT_SIZE - this.fileOutDataBegin))
+		{
+			this.fileOutClose();
+			return false;
+		}
+
+		try
+		{
+			this.fileOut.setLength(FILEOUT_SIZE);
+		}
+		catch(Exception e)
+		{
+			this.fileOutClose();
+			this.errMsg = "AudioBaseClass.dspOutputFinish: Error: RandomAccessFile.setLength failed.";
+			return false;
+		}
+
+		this.fileOutClose();
+		return true;
+	}
+
+	protected void dspOutputClose()
+	{
+		this.fileTempClose();
+		this.fileOutClose();
+	}
+
+	/*
+	 * Thread-safe positional write: writes a processed block to the output at byte offset "dataOffset" of the audio data,
+	 * without touching fileOutPos/fileTempPos.
+	 */
+
+	protected boolean dspOutputWriteAt(byte[] buffer, long dataOffset)
+	{
+		return this.dspOutputWriteAt(buffer, buffer.length, dataOffset);
+	}
+
+	protected boolean dspOutputWriteAt(byte[] buffer, int length, long dataOffset)
+	{
+		final long AUDIO_DATA_SIZE = this.audioDataEnd - this.audioDataBegin;
+
+		FileChannel channel = null;
+		ByteBuffer byteBuffer = null;
+		long position = 0L;
+
+		if(this.fileOutDirect)
+		{
+			if(dataOffset >= AUDIO_DATA_SIZE) return true;
+			if((dataOffset + ((long) length)) > AUDIO_DATA_SIZE) length = (int) (AUDIO_DATA_SIZE - dataOffset);
+
+			channel = this.fileOut.getChannel();
+			position = this.fileOutDataBegin + dataOffset;
+		}
+		else
+		{
+			channel = this.fileTemp.getChannel();
+			position = dataOffset;
+		}
+
+		byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+
+		try
+		{
+			while(byteBuffer.hasRemaining()) position += (long) channel.write(byteBuffer, position);
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Maps bytes [dataOffset, dataOffset + length) of the output audio data for writing (direct output only,
+	 * the file already has its final size). Returns null if the output cannot be mapped.
+	 */
+
+	protected MappedByteBuffer dspOutputMap(long dataOffset, long length)
+	{
+		if(!this.fileOutDirect || (length <= 0L)) return null;
+
+		try
+		{
+			return this.fileOut.getChannel().map(FileChannel.MapMode.READ_WRITE, (this.fileOutDataBegin + dataOffset), length);
+		}
+		catch(Exception e)
+		{
+			return null;
+		}
+	}
+
+	/*
+	 * Effect kernel: processes one block of decoded samples in place. "buffer" holds nFrames interleaved frames,
+	 * independently of the file's sample format.
+	 */
+
+	protected abstract void dspBlockProcess(int[] buffer, int nFrames);
+
+	/*
+	 * Returns true if the blocks must be fed to dspBlockProcess() from the end of the file to the beginning.
+	 */
+
+	protected boolean dspReverseOrder()
+	{
+		return false;
+	}
+
+	/*
+	 * Checks whether the effect can process the current stream (e.g. channel count). Sets errMsg if it can't.
+	 */
+
+	protected boolean dspStreamCheck()
+	{
+		return true;
+	}
+
+	/*
+	 * Effect parameters that change the output (e.g. the bitcrush level), as text. Part of the result cache key.
+	 */
+
+	protected String dspParams()
+	{
+		return "";
+	}
+
+	/*
+	 * Sets the block size in frames, samples and bytes for the current stream (from bufferSizeTarget, if set).
+	 */
+
+	protected void bufferSizeInit()
+	{
+		/*fmtChunkParse() rejects a zero frame size; never divide by zero anyway.*/
+		final int FRAME_SIZE_BYTES = Math.max((this.nChannels*this.bitDepth/8), 1);
+
+		if(this.bufferSizeTarget > 0) this.bufferSizeFrames = Math.max((this.bufferSizeTarget/FRAME_SIZE_BYTES), 1);
+
+		/*A block never spans more than one input map window (only matters with a very large number of channels).*/
+		this.bufferSizeFrames = (int) Math.max(Math.min((long) this.bufferSizeFrames, (FILEIN_MAP_WINDOW_SIZE/((long) FRAME_SIZE_BYTES))), 1L);
+
+		this.bufferSizeSamples = this.bufferSizeFrames*this.nChannels;
+		this.bufferSizeBytes = this.bufferSizeSamples*this.bitDepth/8;
+	}
+
+	/*
+	 * Metrics of the last job, as a JSON object describing the job followed by its stage timings.
+	 */
+
+	public String metricsJson()
+	{
+		final String[][] JOB = {
+			{"effect", AudioMetrics.jsonString(this.getClass().getSimpleName())},
+			{"input", AudioMetrics.jsonString(this.fileInDir)},
+			{"output", AudioMetrics.jsonString(this.fileOutDir)},
+			{"format", AudioMetrics.jsonString(this.format.name())},
+			{"sampleRate", Integer.toString(this.sampleRate)},
+			{"channels", Integer.toString(this.nChannels)},
+			{"bufferSizeFrames", Integer.toString(this.bufferSizeFrames)},
+			{"parallelism", Integer.toString(this.dspParallelism)},
+			{"pipelined", Boolean.toString(this.dspPipelined)},
+			{"inputMapping", Boolean.toString(this.fileInMapEnabled)},
+			{"directOutput", Boolean.toString(this.fileOutDirect)},
+			{"cacheHit", Boolean.toString(this.resultCacheHit)}
+		};
+
+		return this.metrics.toJson(JOB);
+	}
+
+	/*
+	 * Writes the metrics of the job that just ended to metricsReportDir, if set.
+	 */
+
+	protected boolean metricsReportWrite()
+	{
+		File reportFile = null;
+
+		if(this.metricsReportDir.equals("")) return true;
+
+		reportFile = new File(this.metricsReportDir).getAbsoluteFile();
+		if(reportFile.getParentFile() != null) reportFile.getParentFile().mkdirs();
+
+		try(Writer writer = new FileWriter(reportFile))
+		{
+			writer.write(this.metricsJson());
 		}
 		catch(Exception e)
 		{
+			this.errMsg = "AudioBaseClass.metricsReportWrite: Error: failed to write metrics report.";
 			return false;
 		}
 
 		return true;
 	}
 
-	protected boolean fileInClose()
+	/*
+	 * Copies the stream parameters of an initialized object, so this object's dspBlockProcess() can run on its blocks
+	 * without opening the input file itself (used by AudioChain).
+	 */
+
+	protected void dspCopyStreamParams(AudioBaseClass source)
 	{
-		if(this.fileIn == null) return false;
+		this.format = source.format;
+		this.sampleRate = source.sampleRate;
+		this.bitDepth = source.bitDepth;
+		this.nChannels = source.nChannels;
+
+		this.bufferSizeFrames = source.bufferSizeFrames;
+		this.bufferSizeSamples = source.bufferSizeSamples;
+		this.bufferSizeBytes = source.bufferSizeBytes;
+
+		this.audioDataBegin = source.audioDataBegin;
+		this.audioDataEnd = source.audioDataEnd;
+	}
+
+	/*
+	 * Backward: the blocks are the same as dspLoopBackward()'s (whole blocks from the start of the data, the remaining
+	 * frames last), and the block at frame "n" of the input, "nFrames" long, goes to frame (total - n - nFrames)
+	 * of the output, so no segment depends on another.
+	 */
+
+	protected boolean dspLoopParallel(boolean backward)
+	{
+		final int FRAME_SIZE_BYTES = this.nChannels*this.bitDepth/8;
+		final long AUDIO_DATA_SIZE = this.audioDataEnd - this.audioDataBegin;
+		final long AUDIO_DATA_FRAMES_SIZE = (AUDIO_DATA_SIZE/((long) FRAME_SIZE_BYTES))*((long) FRAME_SIZE_BYTES);
+		final long N_BLOCKS = (AUDIO_DATA_SIZE + ((long) this.bufferSizeBytes) - 1L)/((long) this.bufferSizeBytes);
+		final long BLOCKS_END = this.audioDataBegin + N_BLOCKS*((long) this.bufferSizeBytes);
+
+		ForkJoinPool pool = null;
+		List<Callable<Boolean>> tasks = null;
+		List<Future<Boolean>> results = null;
+
+		long blocksPerSegment = 0L;
+		long segmentBegin = 0L;
+
+		/*Aim for a few segments per thread, so uneven progress between threads evens out.*/
+		blocksPerSegment = (N_BLOCKS + 4L*((long) this.dspParallelism) - 1L)/(4L*((long) this.dspParallelism));
+		blocksPerSegment = Math.min(blocksPerSegment, (FILEIN_MAP_WINDOW_SIZE/((long) this.bufferSizeBytes)));
+		if(blocksPerSegment < 1L) blocksPerSegment = 1L;
 
 		try
 		{
-			this.fileIn.close();
+			if(this.fileInChannel == null) this.fileInChannel = this.fileIn.getChannel();
 		}
 		catch(Exception e)
 		{
+			this.errMsg = "AudioBaseClass.dspLoopParallel: Error: failed to open input file channel.";
 			return false;
 		}
 
-		this.fileIn = null;
-		this.fileInSize = 0L;
+		tasks = new ArrayList<Callable<Boolean>>();
 
-		return true;
-	}
+		segmentBegin = this.audioDataBegin;
+		while(segmentBegin < this.audioDataEnd)
+		{
+			final long SEGMENT_BEGIN = segmentBegin;
+			final long SEGMENT_END = Math.min((segmentBegin + blocksPerSegment*((long) this.bufferSizeBytes)), BLOCKS_END);
 
-	protected boolean fileOutCreate()
-	{
-		this.fileOutClose();
+			tasks.add(() -> this.dspSegmentProcess(SEGMENT_BEGIN, SEGMENT_END, backward));
 
-		if(!FileManager.fileCreate(this.fileOutDir)) return false;
+			segmentBegin = SEGMENT_END;
+		}
+
+		pool = new ForkJoinPool(this.dspParallelism);
 
 		try
 		{
-			this.fileOut = new RandomAccessFile(this.fileOutDir, "rw");
+			results = pool.invokeAll(tasks);
+
+			for(Future<Boolean> result : results)
+			{
+				if(!result.get())
+				{
+					this.errMsg = "AudioBaseClass.dspLoopParallel: Error: failed to process audio segment.";
+					return false;
+				}
+			}
 		}
 		catch(Exception e)
 		{
+			this.errMsg = "AudioBaseClass.dspLoopParallel: Error: parallel processing failed.";
 			return false;
 		}
+		finally
+		{
+			pool.shutdown();
+		}
 
-		return true;
-	}
-
-	protected boolean fileOutClose()
-	{
-		if(this.fileOut == null) return false;
+		/*Leave the output positions where the sequential loops would have left them.*/
+		this.fileInPos = BLOCKS_END;
 
-		try
+		if(backward)
 		{
-			this.fileOut.close();
+			if(this.fileOutDirect) this.fileOutPos = this.fileOutDataBegin + AUDIO_DATA_FRAMES_SIZE;
+			else this.fileTempPos = AUDIO_DATA_FRAMES_SIZE;
 		}
-		catch(Exception e)
+		else
 		{
-			return false;
+			if(this.fileOutDirect) this.fileOutPos = this.fileOutDataBegin + AUDIO_DATA_SIZE;
+			else this.fileTempPos = BLOCKS_END - this.audioDataBegin;
 		}
 
-		this.fileOut = null;
 		return true;
 	}
 
-	protected boolean fileTempCreate()
+	protected boolean dspSegmentProcess(long segmentBegin, long segmentEnd, boolean backward)
 	{
-		this.fileTempClose();
-
-		if(!FileManager.fileCreate(FILETEMP_DIR)) return false;
-
-		try
+		final int FRAME_SIZE_BYTES = this.nChannels*this.bitDepth/8;
+		final long FRAMES_END = this.audioDataBegin + ((this.audioDataEnd - this.audioDataBegin)/((long) FRAME_SIZE_BYTES))*((long) FRAME_SIZE_BYTES);
+		final long DATA_END = Math.min(this.audioDataEnd, this.fileInSize);
+
+		/*Range of the output audio data written by this segment.*/
+		final long OUTPUT_BEGIN = backward ? (FRAMES_END - Math.min(segmentEnd, FRAMES_END)) : (segmentBegin - this.audioDataBegin);
+		final long OUTPUT_END = backward ? (FRAMES_END - Math.min(segmentBegin, FRAMES_END)) : (Math.min(segmentEnd, this.audioDataEnd) - this.audioDataBegin);
+
+		byte[] byteBuffer = new byte[this.bufferSizeBytes];
+		int[] buffer = new int[this.bufferSizeSamples];
+
+		MappedByteBuffer segmentMap = null;
+		MappedByteBuffer outputMap = null;
+		ByteBuffer readBuffer = null;
+		long position = 0L;
+		long dataOffset = 0L;
+		long time = 0L;
+		int nFrames = 0;
+		int length = 0;
+		AudioEvents.Block block = null;
+
+		if(this.fileInMapEnabled && (segmentBegin < DATA_END))
 		{
-			this.fileTemp = new RandomAccessFile(FILETEMP_DIR, "rw");
+			try
+			{
+				segmentMap = this.fileInChannel.map(FileChannel.MapMode.READ_ONLY, segmentBegin, (Math.min(segmentEnd, DATA_END) - segmentBegin));
+			}
+			catch(Exception e)
+			{
+				segmentMap = null;
+			}
 		}
-		catch(Exception e)
+
+		/*With mapping enabled, direct output is written through a mapping of the segment's output range as well.*/
+		if(this.fileInMapEnabled) outputMap = this.dspOutputMap(OUTPUT_BEGIN, (OUTPUT_END - OUTPUT_BEGIN));
+
+		for(position = segmentBegin; position < segmentEnd; position += (long) this.bufferSizeBytes)
 		{
-			return false;
+			nFrames = this.bufferSizeFrames;
+
+			if(backward)
+			{
+				if(position >= FRAMES_END) break;
+
+				/*The last block of the input holds the remaining frames only: it becomes the first block of the output.*/
+				nFrames = (int) Math.min((long) this.bufferSizeFrames, ((FRAMES_END - position)/((long) FRAME_SIZE_BYTES)));
+			}
+
+			Arrays.fill(byteBuffer, (byte) 0);
+
+			block = this.dspStageBegin(AudioMetrics.Stages.READ);
+			time = System.nanoTime();
+
+			length = 0;
+			if(position < DATA_END) length = (int) Math.min((long) this.bufferSizeBytes, (DATA_END - position));
+
+			if(length <= 0)
+			{
+				/*Past the end of the audio data: process a block of silence, as fileInRead() would.*/
+			}
+			else if(segmentMap != null)
+			{
+				segmentMap.get((int) (position - segmentBegin), byteBuffer, 0, length);
+			}
+			else
+			{
+				readBuffer = ByteBuffer.wrap(byteBuffer, 0, length);
+
+				try
+				{
+					while(readBuffer.hasRemaining())
+						if(this.fileInChannel.read(readBuffer, (position + ((long) readBuffer.position()))) < 0) break;
+				}
+				catch(Exception e)
+				{
+					return false;
+				}
+			}
+
+			this.dspStageDone(AudioMetrics.Stages.READ, time, (long) Math.max(length, 0), block);
+
+			this.dspBlockTransform(byteBuffer, 0, buffer, nFrames);
+
+			length = nFrames*FRAME_SIZE_BYTES;
+
+			if(backward) dataOffset = FRAMES_END - position - ((long) length);
+			else dataOffset = position - this.audioDataBegin;
+
+			block = this.dspStageBegin(AudioMetrics.Stages.WRITE);
+			time = System.nanoTime();
+
+			if(outputMap != null)
+			{
+				length = (int) Math.min((long) length, (OUTPUT_END - dataOffset));
+				if(length > 0) outputMap.put((int) (dataOffset - OUTPUT_BEGIN), byteBuffer, 0, length);
+			}
+			else if(!this.dspOutputWriteAt(byteBuffer, length, dataOffset)) return false;
+
+			this.dspStageDone(AudioMetrics.Stages.WRITE, time, (long) Math.max(length, 0), block);
+
+			if(!this.dspBlockDone()) return false;
 		}
 
 		return true;
 	}
 
-	protected boolean fileTempOpen()
+	protected boolean dspLoopForward()
 	{
-		this.fileTempClose();
+		byte[] byteBuffer = new byte[this.bufferSizeBytes];
 
-		try
-		{
-			this.fileTemp = new RandomAccessFile(FILETEMP_DIR, "r");
-			this.fileTempSize = this.fileTemp.length();
-		}
-		catch(Exception e)
+		int[] buffer = new int[this.bufferSizeSamples];
+
+		this.fileInPos = this.audioDataBegin;
+
+		while(this.fileInPos < this.audioDataEnd)
 		{
-			return false;
+			if(!this.dspBlockRun(byteBuffer, buffer, this.bufferSizeFrames)) return false;
+
+			this.fileInPos += (long) this.bufferSizeBytes;
 		}
 
 		return true;
 	}
 
-	protected boolean fileTempClose()
+	protected boolean dspLoopBackward()
 	{
-		if(this.fileTemp == null) return false;
+		final int FRAME_SIZE_BYTES = this.nChannels*this.bitDepth/8;
+		final long AUDIO_DATALENGTH_FRAMES = (this.audioDataEnd - this.audioDataBegin)/((long) FRAME_SIZE_BYTES);
 
-		try
-		{
-			this.fileTemp.close();
-		}
-		catch(Exception e)
+		final int N_FRAMES_REMAINING = (int) (AUDIO_DATALENGTH_FRAMES%((long) this.bufferSizeFrames));
+		final int N_SAMPLES_REMAINING = N_FRAMES_REMAINING*this.nChannels;
+		final int N_BYTES_REMAINING = N_FRAMES_REMAINING*FRAME_SIZE_BYTES;
+
+		byte[] byteBuffer = new byte[N_BYTES_REMAINING];
+
+		int[] buffer = new int[N_SAMPLES_REMAINING];
+
+		/*The remaining frames at the end of the file become the first block of the output.*/
+
+		this.fileInPos = this.audioDataBegin + (AUDIO_DATALENGTH_FRAMES - ((long) N_FRAMES_REMAINING))*((long) FRAME_SIZE_BYTES);
+
+		if(!this.dspBlockRun(byteBuffer, buffer, N_FRAMES_REMAINING)) return false;
+
+		byteBuffer = new byte[this.bufferSizeBytes];
+		buffer = new int[this.bufferSizeSamples];
+
+		this.fileInPos -= (long) this.bufferSizeBytes;
+
+		while(this.fileInPos >= this.audioDataBegin)
 		{
-			return false;
-		}
+			if(!this.dspBlockRun(byteBuffer, buffer, this.bufferSizeFrames)) return false;
 
-		this.fileTemp = null;
-		this.fileTempSize = 0L;
+			this.fileInPos -= (long) this.bufferSizeBytes;
+		}
 
 		return true;
 	}
 
-	protected boolean fileInGetParams()
+	/*
+	 * Pipelined version of dspLoopForward()/dspLoopBackward(), same blocks in the same order:
+	 * a reader thread reads runs of up to PIPELINE_SLOT_BLOCKS blocks into the ring, this thread decodes, processes and encodes
+	 * them block by block, and a writer thread writes every run to the output at once. With PIPELINE_RING_SIZE runs
+	 * in flight, the whole run takes about as long as the slowest of the three stages rather than their sum.
+	 */
+
+	protected boolean dspLoopPipelined(boolean backward)
 	{
-		final int BUFFER_SIZE = 4096;
-		int bytepos = 0;
+		final int FRAME_SIZE_BYTES = this.nChannels*this.bitDepth/8;
+		final long AUDIO_DATA_SIZE = this.audioDataEnd - this.audioDataBegin;
+		final long AUDIO_DATALENGTH_FRAMES = AUDIO_DATA_SIZE/((long) FRAME_SIZE_BYTES);
 
-		byte[] headerInfo = new byte[BUFFER_SIZE];
-		long num = 0L;
+		/*Backward: one (possibly empty) block with the remaining frames, then the whole blocks.*/
+		final long N_BLOCKS = backward ? (AUDIO_DATALENGTH_FRAMES/((long) this.bufferSizeFrames) + 1L) : ((AUDIO_DATA_SIZE + ((long) this.bufferSizeBytes) - 1L)/((long) this.bufferSizeBytes));
 
-		try
-		{
-			this.fileIn.seek(0L);
-			this.fileIn.readFully(headerInfo);
-		}
-		catch(EOFException eof_e)
-		{
-			/*IGNORE*/
-		}
-		catch(Exception e)
-		{
-			this.status = Status.ERROR_GENERIC;
-			this.errMsg = "AudioBaseClass.fileInGetParams: Error: RandomAccessFile.readFully failed.";
-			return false;
-		}
+		/*Large blocks: fewer blocks per run, so a run stays within PIPELINE_SLOT_SIZE_MAX bytes.*/
+		final int SLOT_BLOCKS = Math.max(Math.min(PIPELINE_SLOT_BLOCKS, (PIPELINE_SLOT_SIZE_MAX/this.bufferSizeBytes)), 1);
+		final long N_RUNS = (N_BLOCKS + ((long) SLOT_BLOCKS) - 1L)/((long) SLOT_BLOCKS);
 
-		if(!compareSignature("RIFF".toCharArray(), headerInfo, 0))
-		{
-			this.status = Status.ERROR_FILENOTSUPPORTED;
-			return false;
-		}
+		final AudioBlockRing RING = new AudioBlockRing(PIPELINE_RING_SIZE, 3, SLOT_BLOCKS, this.bufferSizeBytes, this.bufferSizeSamples);
+
+		Thread reader = null;
+		Thread writer = null;
+		boolean done = false;
+
+		reader = new Thread(() -> this.dspPipelineRead(RING, N_BLOCKS, backward), "audiofx-reader");
+		writer = new Thread(() -> this.dspPipelineWrite(RING, N_RUNS), "audiofx-writer");
+
+		reader.setDaemon(true);
+		writer.setDaemon(true);
+
+		reader.start();
+		writer.start();
+
+		done = this.dspPipelineProcess(RING, N_RUNS);
+		if(!done) RING.abort();
 
-		if(!compareSignature("WAVE".toCharArray(), headerInfo, 8))
+		while(reader.isAlive() || writer.isAlive())
 		{
-			this.status = Status.ERROR_FILENOTSUPPORTED;
-			return false;
+			try
+			{
+				reader.join();
+				writer.join();
+			}
+			catch(InterruptedException e)
+			{
+				RING.abort();
+			}
 		}
 
-		bytepos = 12;
+		/*errMsg was set by the stage that failed.*/
+		return (done && !RING.isAborted());
+	}
 
-		while(true)
+	protected void dspPipelineRead(AudioBlockRing ring, long nBlocks, boolean backward)
+	{
+		final int FRAME_SIZE_BYTES = this.nChannels*this.bitDepth/8;
+		final long AUDIO_DATALENGTH_FRAMES = (this.audioDataEnd - this.audioDataBegin)/((long) FRAME_SIZE_BYTES);
+		final int N_FRAMES_REMAINING = (int) (AUDIO_DATALENGTH_FRAMES%((long) this.bufferSizeFrames));
+
+		AudioBlockRing.Slot slot = null;
+		long position = 0L;
+		long nBlock = 0L;
+		long nRun = 0L;
+		long time = 0L;
+		int nFrames = 0;
+		int length = 0;
+		AudioEvents.Block block = null;
+
+		if(backward) position = this.audioDataBegin + (AUDIO_DATALENGTH_FRAMES - ((long) N_FRAMES_REMAINING))*((long) FRAME_SIZE_BYTES);
+		else position = this.audioDataBegin;
+
+		while(nBlock < nBlocks)
 		{
-			if(bytepos > (BUFFER_SIZE - 8))
+			slot = ring.acquire(0, nRun);
+			if(slot == null) return;
+
+			slot.nBlocks = 0;
+			slot.nBytes = 0;
+
+			while((slot.nBlocks < slot.blockFrames.length) && (nBlock < nBlocks))
 			{
-				this.status = Status.ERROR_BROKENHEADER;
-				return false;
-			}
+				nFrames = (backward && (nBlock == 0L)) ? N_FRAMES_REMAINING : this.bufferSizeFrames;
+				length = nFrames*FRAME_SIZE_BYTES;
+
+				block = this.dspStageBegin(AudioMetrics.Stages.READ);
+				time = System.nanoTime();
 
-			if(compareSignature("fmt ".toCharArray(), headerInfo, bytepos)) break;
+				if(!this.fileInRead(slot.byteBuffer, slot.nBytes, length, position))
+				{
+					this.errMsg = "AudioBaseClass.dspPipelineRead: Error: failed to read input file.";
+					ring.abort();
+					return;
+				}
 
-			num = NumUtils.bytesToU32LE(headerInfo, (bytepos + 4));
-			bytepos += (int) (num + 8L);
+				this.dspStageDone(AudioMetrics.Stages.READ, time, (long) this.fileInDataLength(position, length), block);
+
+				slot.blockFrames[slot.nBlocks] = nFrames;
+				slot.nBlocks++;
+				slot.nBytes += length;
+
+				if(backward) position -= (long) this.bufferSizeBytes;
+				else position += (long) this.bufferSizeBytes;
+
+				nBlock++;
+			}
+
+			ring.release(0, nRun);
+			nRun++;
 		}
 
-		num = NumUtils.bytesToU16LE(headerInfo, (bytepos + 8));
-		if(num != 1)
+		this.fileInPos = position;
+	}
+
+	protected boolean dspPipelineProcess(AudioBlockRing ring, long nRuns)
+	{
+		final int FRAME_SIZE_BYTES = this.nChannels*this.bitDepth/8;
+
+		AudioBlockRing.Slot slot = null;
+		long nRun = 0L;
+		int nBlock = 0;
+		int offset = 0;
+
+		for(nRun = 0L; nRun < nRuns; nRun++)
 		{
-			this.status = Status.ERROR_FORMATNOTSUPPORTED;
-			return false;
+			slot = ring.acquire(1, nRun);
+			if(slot == null) return false;
+
+			offset = 0;
+			for(nBlock = 0; nBlock < slot.nBlocks; nBlock++)
+			{
+				this.dspBlockTransform(slot.byteBuffer, offset, slot.buffer, slot.blockFrames[nBlock]);
+
+				offset += slot.blockFrames[nBlock]*FRAME_SIZE_BYTES;
+
+				if(!this.dspBlockDone()) return false;
+			}
+
+			ring.release(1, nRun);
 		}
 
-		this.nChannels = (int) NumUtils.bytesToU16LE(headerInfo, (bytepos + 10));
-		this.sampleRate = (int) NumUtils.bytesToU32LE(headerInfo, (bytepos + 12));
-		this.bitDepth = (int) NumUtils.bytesToU16LE(headerInfo, (bytepos + 22));
+		return true;
+	}
 
-		num = NumUtils.bytesToU32LE(headerInfo, (bytepos + 4));
-		bytepos += (int) (num + 8L);
+	protected void dspPipelineWrite(AudioBlockRing ring, long nRuns)
+	{
+		AudioBlockRing.Slot slot = null;
+		long nRun = 0L;
+		long time = 0L;
+		AudioEvents.Block block = null;
 
-		while(true)
+		for(nRun = 0L; nRun < nRuns; nRun++)
 		{
-			if(bytepos > (BUFFER_SIZE - 8))
+			slot = ring.acquire(2, nRun);
+			if(slot == null) return;
+
+			block = this.dspStageBegin(AudioMetrics.Stages.WRITE);
+			time = System.nanoTime();
+
+			if(!this.dspOutputWrite(slot.byteBuffer, slot.nBytes))
 			{
-				this.status = Status.ERROR_BROKENHEADER;
-				return false;
+				this.errMsg = "AudioBaseClass.dspPipelineWrite: Error: failed to write output file.";
+				ring.abort();
+				return;
 			}
 
-			if(compareSignature("data".toCharArray(), headerInfo, bytepos)) break;
+			this.dspStageDone(AudioMetrics.Stages.WRITE, time, (long) slot.nBytes, block);
 
-			num = NumUtils.bytesToU32LE(headerInfo, (bytepos + 4));
-			bytepos += (int) (num + 8L);
+			ring.release(2, nRun);
 		}
+	}
 
-		num = NumUtils.bytesToU32LE(headerInfo, (bytepos + 4));
+	/*
+	 * Reads the block at fileInPos, runs dspBlockProcess() on it and writes it to the output.
+	 */
 
-		this.audioDataBegin = (long) (bytepos + 8);
-		this.audioDataEnd = this.audioDataBegin + num;
+	protected boolean dspBlockRun(byte[] byteBuffer, int[] buffer, int nFrames)
+	{
+		AudioEvents.Block block = this.dspStageBegin(AudioMetrics.Stages.READ);
+		long time = System.nanoTime();
 
-		switch(this.bitDepth)
+		if(!this.fileInRead(byteBuffer, this.fileInPos))
 		{
-			case 16:
-				this.format = Formats.I16;
-				return true;
+			this.errMsg = "AudioBaseClass.dspBlockRun: Error: failed to read input file.";
+			return false;
+		}
 
-			case 24:
-				this.format = Formats.I24;
-				return true;
+		this.dspStageDone(AudioMetrics.Stages.READ, time, (long) this.fileInDataLength(this.fileInPos, byteBuffer.length), block);
+
+		this.dspBlockTransform(byteBuffer, 0, buffer, nFrames);
+
+		block = this.dspStageBegin(AudioMetrics.Stages.WRITE);
+		time = System.nanoTime();
+
+		if(!this.dspOutputWrite(byteBuffer))
+		{
+			this.errMsg = "AudioBaseClass.dspBlockRun: Error: failed to write output file.";
+			return false;
 		}
 
-		this.format = Formats.UNSUPPORTED;
-		this.status = Status.ERROR_FORMATNOTSUPPORTED;
+		this.dspStageDone(AudioMetrics.Stages.WRITE, time, (long) byteBuffer.length, block);
 
-		return false;
+		return this.dspBlockDone();
 	}
 
-	protected boolean fileOutWriteHeader()
-	{
-		byte[] headerInfo = new byte[44];
-
-		headerInfo[0] = (byte) 'R';
-		headerInfo[1] = (byte) 'I';
-		headerInfo[2] = (byte) 'F';
-		headerInfo[3] = (byte) 'F';
+	/*
+	 * Decodes the block at byteBuffer[byteOffset...], runs dspBlockProcess() on it and encodes it back in place.
+	 */
 
-		NumUtils.n32ToBytesLE((int) (this.fileTempSize + 36L), headerInfo, 4);
+	protected void dspBlockTransform(byte[] byteBuffer, int byteOffset, int[] buffer, int nFrames)
+	{
+		final int N_SAMPLES = nFrames*this.nChannels;
+		final long N_BYTES = (long) (N_SAMPLES*this.bitDepth/8);
 
-		headerInfo[8] = (byte) 'W';
-		headerInfo[9] = (byte) 'A';
-		headerInfo[10] = (byte) 'V';
-		headerInfo[11] = (byte) 'E';
+		AudioEvents.Block block = this.dspStageBegin(AudioMetrics.Stages.PROCESS);
+		long time = System.nanoTime();
+		long timeDecoded = 0L;
+		long timeProcessed = 0L;
 
-		headerInfo[12] = (byte) 'f';
-		headerInfo[13] = (byte) 'm';
-		headerInfo[14] = (byte) 't';
-		headerInfo[15] = (byte) ' ';
+		this.dspBlockDecode(byteBuffer, byteOffset, buffer, N_SAMPLES);
+		timeDecoded = System.nanoTime();
 
-		NumUtils.n32ToBytesLE(16, headerInfo, 16);
+		this.dspBlockProcess(buffer, nFrames);
+		timeProcessed = System.nanoTime();
 
-		NumUtils.n16ToBytesLE((short) 1, headerInfo, 20);
+		this.dspBlockEncode(buffer, byteBuffer, byteOffset, N_SAMPLES);
 
-		NumUtils.n16ToBytesLE((short) this.nChannels, headerInfo, 22);
+		this.metrics.add(AudioMetrics.Stages.DECODE, (timeDecoded - time), N_BYTES);
+		this.metrics.add(AudioMetrics.Stages.PROCESS, (timeProcessed - timeDecoded), N_BYTES);
+		this.metrics.add(AudioMetrics.Stages.ENCODE, (System.nanoTime() - timeProcessed), N_BYTES);
 
-		NumUtils.n32ToBytesLE(this.sampleRate, headerInfo, 24);
+		if(block != null) AudioEvents.blockEnd(block, N_BYTES);
+	}
 
-		NumUtils.n32ToBytesLE((this.sampleRate*this.nChannels*this.bitDepth/8), headerInfo, 28);
+	/*
+	 * Called after every block: reports progress to progressListener (at most every PROGRESS_INTERVAL_NANOS, and from one
+	 * thread at a time), and returns false if the job has been cancelled.
+	 */
 
-		NumUtils.n16ToBytesLE((short) (this.nChannels*this.bitDepth/8), headerInfo, 32);
+	protected boolean dspBlockDone()
+	{
+		long time = 0L;
+		long timeNext = 0L;
 
-		NumUtils.n16ToBytesLE((short) this.bitDepth, headerInfo, 34);
+		if(this.dspCancelled) return false;
+		if(this.progressListener == null) return true;
 
-		headerInfo[36] = (byte) 'd';
-		headerInfo[37] = (byte) 'a';
-		headerInfo[38] = (byte) 't';
-		headerInfo[39] = (byte) 'a';
+		time = System.nanoTime();
+		timeNext = this.progressNext.get();
 
-		NumUtils.n32ToBytesLE((int) this.fileTempSize, headerInfo, 40);
+		if((time - timeNext) < 0L) return true;
+		if(!this.progressNext.compareAndSet(timeNext, (time + PROGRESS_INTERVAL_NANOS))) return true;
 
-		try
-		{
-			this.fileOut.seek(0L);
-			this.fileOut.write(headerInfo);
-		}
-		catch(Exception e)
+		synchronized(this.progressLock)
 		{
-			this.status = Status.ERROR_GENERIC;
-			this.errMsg = "AudioBaseClass.fileOutWriteHeader: Error: RandomAccessFile.write failed.";
-			return false;
+			if(!this.progressListener.progress(this, this.getBytesProcessed(), this.getBytesTotal())) this.dspCancelled = true;
 		}
 
-		this.fileOutPos = 44L;
+		return !this.dspCancelled;
+	}
 
-		return true;
+	/*
+	 * Block event for a block operation about to start, or null (JFR events off, or this block is not sampled).
+	 */
+
+	protected AudioEvents.Block dspStageBegin(AudioMetrics.Stages stage)
+	{
+		if(!JFR_EVENTS) return null;
+
+		return AudioEvents.blockBegin(stage);
 	}
 
-	protected boolean compareSignature(char[] auth, byte[] buf, int offset)
+	/*
+	 * Adds a block read or write that started at "timeBegin" to the metrics, and ends its block event, if any.
+	 */
+
+	protected void dspStageDone(AudioMetrics.Stages stage, long timeBegin, long nBytes, AudioEvents.Block block)
 	{
-		if(auth == null) return false;
-		if(buf == null) return false;
+		this.metrics.add(stage, (System.nanoTime() - timeBegin), nBytes);
 
-		if(offset < 0) return false;
-		if(auth.length < 4) return false;
-		if(buf.length < (offset + 4)) return false;
+		if(block != null) AudioEvents.blockEnd(block, nBytes);
+	}
 
-		if(auth[0] != buf[offset]) return false;
-		if(auth[1] != buf[offset + 1]) return false;
-		if(auth[2] != buf[offset + 2]) return false;
-		if(auth[3] != buf[offset + 3]) return false;
+	/*
+	 * Sample format conversion between file data and the int[] blocks seen by dspBlockProcess().
+	 * F32 samples are kept as their raw bit patterns (Float.floatToRawIntBits()): effects that do arithmetic
+	 * convert them with Float.intBitsToFloat().
+	 */
 
-		return true;
+	protected void dspBlockDecode(byte[] byteBuffer, int[] buffer, int nSamples)
+	{
+		this.dspBlockDecode(byteBuffer, 0, buffer, nSamples);
 	}
 
-	protected boolean compareSignature(char[] auth, char[] buf, int offset)
+	protected void dspBlockDecode(byte[] byteBuffer, int byteOffset, int[] buffer, int nSamples)
 	{
-		if(auth == null) return false;
-		if(buf == null) return false;
+		switch(this.format)
+		{
+			case I16:
+				NumUtils.bytesToI16ArrayLE(byteBuffer, byteOffset, buffer, 0, nSamples);
+				break;
+
+			case I24:
+				NumUtils.bytesToI24ArrayLE(byteBuffer, byteOffset, buffer, 0, nSamples);
+				break;
+
+			case I32:
+			case F32:
+				NumUtils.bytesToI32ArrayLE(byteBuffer, byteOffset, buffer, 0, nSamples);
+				break;
+		}
+	}
 
-		if(offset < 0) return false;
-		if(auth.length < 4) return false;
-		if(buf.length < (offset + 4)) return false;
+	protected void dspBlockEncode(int[] buffer, byte[] byteBuffer, int nSamples)
+	{
+		this.dspBlockEncode(buffer, byteBuffer, 0, nSamples);
+	}
 
-		if(auth[0] != buf[offset]) return false;
-		if(auth[1] != buf[offset + 1]) return false;
-		if(auth[2] != buf[offset + 2]) return false;
-		if(auth[3] != buf[offset + 3]) return false;
+	protected void dspBlockEncode(int[] buffer, byte[] byteBuffer, int byteOffset, int nSamples)
+	{
+		switch(this.format)
+		{
+			case I16:
+				NumUtils.i16ArrayToBytesLE(buffer, 0, byteBuffer, byteOffset, nSamples);
+				break;
+
+			case I24:
+				NumUtils.i24ArrayToBytesLE(buffer, 0, byteBuffer, byteOffset, nSamples);
+				break;
+
+			case I32:
+			case F32:
+				NumUtils.i32ArrayToBytesLE(buffer, 0, byteBuffer, byteOffset, nSamples);
+				break;
+		}
+	}
 
-		return true;
+	/*
+	 * Audio data size of an output copied from the temporary file: the temporary file holds whole blocks, the output
+	 * is exactly as long as the input audio data (as a direct output is).
+	 */
+
+	protected long rawToWavSize()
+	{
+		return Math.min(this.fileTempSize, (this.audioDataEnd - this.audioDataBegin));
 	}
 
 	protected boolean rawToWavProc()
 	{
+		long time = 0L;
+
 		if(this.status != Status.INITIALIZED) return false;
 
 		if(!this.fileTempOpen())
@@ -532,7 +2458,7 @@ public abstract class AudioBaseClass
 			return false;
 		}
 
-		if(!this.fileOutWriteHeader())
+		if(!this.fileOutWriteHeader(this.rawToWavSize()))
 		{
 			this.fileTempClose();
 			this.fileOutClose();
@@ -541,6 +2467,7 @@ public abstract class AudioBaseClass
 		}
 
 		this.fileTempPos = 0L;
+		time = System.nanoTime();
 
 		if(!this.rawToWavProcLoop())
 		{
@@ -550,6 +2477,8 @@ public abstract class AudioBaseClass
 			return false;
 		}
 
+		this.metrics.add(AudioMetrics.Stages.COPY, (System.nanoTime() - time), this.fileTempSize);
+
 		this.fileTempClose();
 		this.fileOutClose();
 
@@ -558,11 +2487,15 @@ public abstract class AudioBaseClass
 
 	protected boolean rawToWavProcLoop()
 	{
+		final long AUDIO_DATA_SIZE = this.rawToWavSize();
+
 		byte[] buffer = new byte[this.bufferSizeBytes];
+		int length = 0;
 
-		while(this.fileTempPos < this.fileTempSize)
+		while(this.fileTempPos < AUDIO_DATA_SIZE)
 		{
 			Arrays.fill(buffer, (byte) 0);
+			length = (int) Math.min((long) this.bufferSizeBytes, (AUDIO_DATA_SIZE - this.fileTempPos));
 
 			try
 			{
@@ -584,14 +2517,17 @@ public abstract class AudioBaseClass
 			try
 			{
 				this.fileOut.seek(this.fileOutPos);
-				this.fileOut.write(buffer);
+				this.fileOut.write(buffer, 0, length);
 			}
 			catch(Exception e)
 			{
 				this.errMsg = "AudioBaseClass.rawToWavProcLoop: Error: RandomAccessFile.write failed.";
+				return false;
 			}
 
-			this.fileOutPos += (long) this.bufferSizeBytes;
+			this.fileOutPos += (long) length;
+
+			if(this.dspCancelled) return false;
 		}
 
 		return true;
@@ -0,0 +1,429 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.management.ObjectName;
+
+/*
+ * Batch mode: runs one effect over every .wav file of a directory tree, in a single JVM,
+ * with up to nJobs files being processed at the same time.
+ * Output files keep their path relative to the input directory.
+ */
+
+public class AudioBatch
+{
+	protected String effect = "";
+	protected int effectParam = 0;
+	protected String chainSpec = "";
+
+	protected String inputDir = "";
+	protected String outputDir = "";
+
+	/*If set, every file gets a JSON metrics report here, at the same relative path plus ".json".*/
+	protected String metricsDir = "";
+
+	protected int nJobs = 1;
+
+	/*Block size for every file: frames, or bytes (see AudioBaseClass.setBufferSizeBytes()); 0 for the default.*/
+	protected int bufferSizeFrames = 0;
+	protected int bufferSizeBytes = 0;
+
+	/*Result cache shared by every file of the batch, or null.*/
+	protected AudioResultCache resultCache = null;
+
+	/*
+	 * Metadata index, or null. With an index, the input files are brought up to date in it before the batch starts,
+	 * and queued longest first, so the batch does not end waiting on one long file started last.
+	 */
+
+	protected AudioMetadataIndex metadataIndex = null;
+
+	protected AtomicInteger nSucceeded = new AtomicInteger(0);
+	protected AtomicInteger nFailed = new AtomicInteger(0);
+
+	/*Progress of the current run, for AudioMonitor.*/
+	protected volatile int nTotal = 0;
+	protected AtomicInteger nActive = new AtomicInteger(0);
+
+	/*Files being processed, so cancel() can reach them.*/
+	protected Set<AudioBaseClass> running = ConcurrentHashMap.newKeySet();
+	protected volatile boolean cancelled = false;
+
+	protected String errMsg = "";
+
+	public AudioBatch(String effect, String inputDir, String outputDir)
+	{
+		this.effect = effect.toLowerCase();
+		this.inputDir = inputDir;
+		this.outputDir = outputDir;
+	}
+
+	public boolean setJobs(int nJobs)
+	{
+		if(nJobs < 1)
+		{
+			this.errMsg = "AudioBatch.setJobs: Error: number of jobs must be at least 1.";
+			return false;
+		}
+
+		this.nJobs = nJobs;
+		return true;
+	}
+
+	public boolean setBufferSize(int nFrames)
+	{
+		if((nFrames < AudioBaseClass.BUFFER_SIZE_FRAMES_MIN) || (nFrames > AudioBaseClass.BUFFER_SIZE_FRAMES_MAX))
+		{
+			this.errMsg = "AudioBatch.setBufferSize: Error: block size must be between " + AudioBaseClass.BUFFER_SIZE_FRAMES_MIN + " and " + AudioBaseClass.BUFFER_SIZE_FRAMES_MAX + " frames.";
+			return false;
+		}
+
+		this.bufferSizeFrames = nFrames;
+		this.bufferSizeBytes = 0;
+		return true;
+	}
+
+	public boolean setBufferSizeBytes(int nBytes)
+	{
+		if((nBytes < AudioBaseClass.BUFFER_SIZE_BYTES_MIN) || (((long) nBytes) > AudioBaseClass.FILEIN_MAP_WINDOW_SIZE))
+		{
+			this.errMsg = "AudioBatch.setBufferSizeBytes: Error: block size must be between " + AudioBaseClass.BUFFER_SIZE_BYTES_MIN + " and " + AudioBaseClass.FILEIN_MAP_WINDOW_SIZE + " bytes.";
+			return false;
+		}
+
+		this.bufferSizeBytes = nBytes;
+		this.bufferSizeFrames = 0;
+		return true;
+	}
+
+	public void setMetricsDirectory(String metricsDir)
+	{
+		this.metricsDir = metricsDir;
+	}
+
+	public void setResultCache(AudioResultCache cache)
+	{
+		this.resultCache = cache;
+	}
+
+	public void setMetadataIndex(AudioMetadataIndex index)
+	{
+		this.metadataIndex = index;
+	}
+
+	public void setEffectParam(int effectParam)
+	{
+		this.effectParam = effectParam;
+	}
+
+	public void setChain(String chainSpec)
+	{
+		this.chainSpec = chainSpec;
+	}
+
+	public int getSucceededCount()
+	{
+		return this.nSucceeded.get();
+	}
+
+	public int getFailedCount()
+	{
+		return this.nFailed.get();
+	}
+
+	/*
+	 * Cancels the files being processed (they stop at the next block and delete their partial output)
+	 * and fails the files still queued. Thread-safe; run() returns once the running files have stopped.
+	 */
+
+	public void cancel()
+	{
+		this.cancelled = true;
+
+		for(AudioBaseClass audioobj : this.running) audioobj.cancel();
+	}
+
+	public String getLastErrorMessage()
+	{
+		return this.errMsg;
+	}
+
+	public boolean run()
+	{
+		final Path INPUT_ROOT = Paths.get(this.inputDir);
+
+		ExecutorService workers = null;
+		List<Path> files = null;
+		AudioChain chain = null;
+		ObjectName mbeanName = null;
+		boolean done = false;
+
+		if(!Files.isDirectory(INPUT_ROOT))
+		{
+			this.errMsg = "AudioBatch.run: Error: input directory does not exist, or cannot be accessed.";
+			return false;
+		}
+
+		if(this.outputInsideInput(INPUT_ROOT, Paths.get(this.outputDir)))
+		{
+			this.errMsg = "AudioBatch.run: Error: output directory must not be the input directory, or inside it.";
+			return false;
+		}
+
+		if(createEffect(this.effect, "", "") == null)
+		{
+			this.errMsg = "AudioBatch.run: Error: unknown effect \"" + this.effect + "\".";
+			return false;
+		}
+
+		if(this.effect.equals("chain"))
+		{
+			chain = new AudioChain("", "");
+
+			if(!chain.setChain(this.chainSpec))
+			{
+				this.errMsg = chain.errMsg;
+				return false;
+			}
+		}
+
+		files = this.listFiles(INPUT_ROOT);
+		if(files == null) return false;
+
+		if(this.metadataIndex != null)
+		{
+			if(!this.metadataIndex.update(files))
+			{
+				this.errMsg = this.metadataIndex.getLastErrorMessage();
+				return false;
+			}
+
+			files.sort(Comparator.comparingLong((Path file) -> this.fileDataSize(file)).reversed());
+		}
+
+		this.nSucceeded.set(0);
+		this.nFailed.set(0);
+		this.nActive.set(0);
+		this.nTotal = files.size();
+		this.cancelled = false;
+
+		mbeanName = AudioMonitor.register("Batch", new AudioMonitor.Batch(this));
+
+		workers = Executors.newFixedThreadPool(this.nJobs);
+
+		for(Path fileIn : files)
+		{
+			final Path FILE_IN = fileIn;
+			final Path FILE_OUT = Paths.get(this.outputDir).resolve(INPUT_ROOT.relativize(fileIn));
+			final Path FILE_REPORT = this.metricsDir.equals("") ? null : Paths.get(this.metricsDir).resolve(INPUT_ROOT.relativize(fileIn) + ".json");
+
+			workers.execute(() -> this.processFile(FILE_IN, FILE_OUT, FILE_REPORT));
+		}
+
+		workers.shutdown();
+
+		try
+		{
+			while(!workers.awaitTermination(1L, TimeUnit.SECONDS));
+			done = true;
+		}
+		catch(InterruptedException e)
+		{
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+			this.errMsg = "AudioBatch.run: Error: interrupted while waiting for jobs to finish.";
+		}
+
+		AudioMonitor.unregister(mbeanName);
+		return done;
+	}
+
+	/*
+	 * Creates the effect object for the given effect name, or returns null if the name is unknown.
+	 */
+
+	public static AudioBaseClass createEffect(String effect, String fileInDir, String fileOutDir)
+	{
+		if(effect.equals("bitcrush")) return new AudioBitCrush(fileInDir, fileOutDir);
+		if(effect.equals("reverse")) return new AudioReverse(fileInDir, fileOutDir);
+		if(effect.equals("chswap")) return new AudioChannelSwap(fileInDir, fileOutDir);
+		if(effect.equals("chsub")) return new AudioChannelSubtract(fileInDir, fileOutDir);
+		if(effect.equals("chain")) return new AudioChain(fileInDir, fileOutDir);
+
+		return null;
+	}
+
+	protected List<Path> listFiles(Path inputRoot)
+	{
+		List<Path> files = new ArrayList<Path>();
+
+		try(Stream<Path> tree = Files.walk(inputRoot))
+		{
+			tree.filter(Files::isRegularFile)
+				.filter(file -> file.getFileName().toString().toLowerCase().endsWith(".wav"))
+				.sorted()
+				.forEach(files::add);
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioBatch.listFiles: Error: failed to walk input directory.";
+			return null;
+		}
+
+		return files;
+	}
+
+	/*
+	 * True if outputRoot is inputRoot or under it: the outputs would overwrite the inputs, or be walked as inputs.
+	 * Symbolic links are resolved for the parts of the paths that exist.
+	 */
+
+	protected boolean outputInsideInput(Path inputRoot, Path outputRoot)
+	{
+		Path input = inputRoot.toAbsolutePath().normalize();
+		Path output = outputRoot.toAbsolutePath().normalize();
+		Path outputExisting = output;
+
+		try
+		{
+			input = input.toRealPath();
+
+			/*Deepest existing ancestor of the output directory, resolved, plus the part that does not exist yet.*/
+			while((outputExisting != null) && !Files.exists(outputExisting)) outputExisting = outputExisting.getParent();
+			if(outputExisting != null) output = outputExisting.toRealPath().resolve(outputExisting.relativize(output));
+		}
+		catch(Exception e)
+		{
+			/*Compare the paths as given.*/
+		}
+
+		return output.startsWith(input);
+	}
+
+	/*
+	 * Audio data size of an input file from the metadata index, 0 if unknown or unreadable.
+	 */
+
+	protected long fileDataSize(Path fileIn)
+	{
+		final AudioMetadataIndex.Entry ENTRY = this.metadataIndex.get(fileIn);
+
+		if((ENTRY == null) || !ENTRY.isValid()) return 0L;
+
+		return ENTRY.dataSize;
+	}
+
+	/*
+	 * Runs one file. Whatever happens (including a RuntimeException from the effect), the file is reported exactly once,
+	 * and its object is removed from "running" and deinitialized.
+	 */
+
+	protected void processFile(Path fileIn, Path fileOut, Path fileReport)
+	{
+		AudioBaseClass audioobj = null;
+		String failure = "unexpected error.";
+		boolean succeeded = false;
+
+		this.nActive.incrementAndGet();
+
+		try
+		{
+			audioobj = createEffect(this.effect, fileIn.toString(), fileOut.toString());
+
+			failure = this.processFileRun(audioobj, fileOut, fileReport);
+			succeeded = (failure == null);
+		}
+		catch(Exception e)
+		{
+			failure = "unexpected error: " + e;
+		}
+		finally
+		{
+			if(audioobj != null)
+			{
+				this.running.remove(audioobj);
+				audioobj.deinitialize();
+			}
+
+			this.reportFile(fileIn, succeeded, failure);
+		}
+	}
+
+	/*
+	 * Returns null if the file was processed, or the error message.
+	 */
+
+	protected String processFileRun(AudioBaseClass audioobj, Path fileOut, Path fileReport)
+	{
+		if(this.cancelled) return "batch cancelled.";
+
+		try
+		{
+			if(fileOut.getParent() != null) Files.createDirectories(fileOut.getParent());
+		}
+		catch(Exception e)
+		{
+			return "failed to create output directory.";
+		}
+
+		/*Files are already processed in parallel: one thread per file.*/
+		audioobj.setInteractive(false);
+		audioobj.setParallelism(1);
+
+		if(fileReport != null) audioobj.setMetricsReport(fileReport.toString());
+		audioobj.setResultCache(this.resultCache);
+
+		if(this.bufferSizeFrames > 0) audioobj.setBufferSize(this.bufferSizeFrames);
+		else if(this.bufferSizeBytes > 0) audioobj.setBufferSizeBytes(this.bufferSizeBytes);
+
+		if(!audioobj.initialize()) return audioobj.getLastErrorMessage();
+
+		if(audioobj instanceof AudioChain)
+			if(!((AudioChain) audioobj).setChain(this.chainSpec))
+				return audioobj.getLastErrorMessage();
+
+		if(audioobj instanceof AudioBitCrush)
+			if(!((AudioBitCrush) audioobj).setCutoff(this.effectParam))
+				return audioobj.getLastErrorMessage();
+
+		this.running.add(audioobj);
+
+		/*cancel() may have run before this file was added.*/
+		if(this.cancelled) audioobj.cancel();
+
+		if(!audioobj.runDSP()) return audioobj.getLastErrorMessage();
+
+		return null;
+	}
+
+	protected void reportFile(Path fileIn, boolean succeeded, String message)
+	{
+		if(succeeded)
+		{
+			this.nSucceeded.incrementAndGet();
+			this.nActive.decrementAndGet();
+			System.out.println("OK: " + fileIn);
+			return;
+		}
+
+		this.nFailed.incrementAndGet();
+		this.nActive.decrementAndGet();
+		System.out.println("FAILED: " + fileIn + ": " + message);
+	}
+}
@@ -6,9 +6,6 @@
  * Email: rafaelmsabe@gmail.com
  */
 
-import java.io.*;
-import java.util.Arrays;
-
 public class AudioBitCrush extends AudioBaseClass
 {
 	private int cutoff = 0;
@@ -38,6 +35,15 @@ public class AudioBitCrush extends AudioBaseClass
 				limit = 23;
 				break;
 
+			case I32:
+				limit = 31;
+				break;
+
+			case F32:
+				/*Float samples: the bits removed are the lowest mantissa bits.*/
+				limit = 23;
+				break;
+
 			default:
 				return false;
 		}
@@ -67,143 +73,23 @@ public class AudioBitCrush extends AudioBaseClass
 	}
 
 	@Override
-	public boolean runDSP()
-	{
-		if(this.status != AudioBaseClass.Status.INITIALIZED) return false;
-
-		if(!this.fileTempCreate())
-		{
-			this.errMsg = "AudioBitCrush.runDSP: Error: failed to create temporary DSP file.";
-			return false;
-		}
-
-		this.fileInPos = this.audioDataBegin;
-		this.fileTempPos = 0L;
-
-		switch(this.format)
-		{
-			case I16:
-				if(!this.dspLoopI16())
-				{
-					this.fileTempClose();
-					return false;
-				}
-				break;
-
-			case I24:
-				if(!this.dspLoopI24())
-				{
-					this.fileTempClose();
-					return false;
-				}
-				break;
-		}
-
-		this.fileTempClose();
-
-		return this.rawToWavProc();
-	}
-
-	private boolean dspLoopI16()
+	protected String dspParams()
 	{
-		byte[] buffer = new byte[this.bufferSizeBytes];
-		int sample = 0;
-		int nSample = 0;
-
-		while(this.fileInPos < this.audioDataEnd)
-		{
-			Arrays.fill(buffer, (byte) 0);
-
-			try
-			{
-				this.fileIn.seek(this.fileInPos);
-				this.fileIn.readFully(buffer);
-			}
-			catch(EOFException eof_e)
-			{
-				/*IGNORE*/
-			}
-			catch(Exception e)
-			{
-				this.errMsg = "AudioBitCrush.dspLoopI16: Error: RandomAccessFile.readFully failed.";
-				return false;
-			}
-
-			this.fileInPos += (long) this.bufferSizeBytes;
-
-			for(nSample = 0; nSample < this.bufferSizeSamples; nSample++)
-			{
-				sample = (int) NumUtils.bytesToI16LE(buffer, (nSample*2));
-				sample &= ~(this.cutoff);
-				NumUtils.n16ToBytesLE((short) sample, buffer, (nSample*2));
-			}
-
-			try
-			{
-				this.fileTemp.seek(this.fileTempPos);
-				this.fileTemp.write(buffer);
-			}
-			catch(Exception e)
-			{
-				this.errMsg = "AudioBitCrush.dspLoopI16: Error: RandomAccessFile.write failed.";
-				return false;
-			}
-
-			this.fileTempPos += (long) this.bufferSizeBytes;
-		}
-
-		return true;
+		return "cutoff=" + this.cutoff;
 	}
 
-	private boolean dspLoopI24()
+	@Override
+	protected void dspBlockProcess(int[] buffer, int nFrames)
 	{
-		byte[] buffer = new byte[this.bufferSizeBytes];
-		int sample = 0;
+		final int N_SAMPLES = nFrames*this.nChannels;
 		int nSample = 0;
 
-		while(this.fileInPos < this.audioDataEnd)
+		if(SIMD_KERNELS != null)
 		{
-			Arrays.fill(buffer, (byte) 0);
-
-			try
-			{
-				this.fileIn.seek(this.fileInPos);
-				this.fileIn.readFully(buffer);
-			}
-			catch(EOFException eof_e)
-			{
-				/*IGNORE*/
-			}
-			catch(Exception e)
-			{
-				this.errMsg = "AudioBitCrush.dspLoopI24: Error: RandomAccessFile.readFully failed.";
-				return false;
-			}
-
-			this.fileInPos += (long) this.bufferSizeBytes;
-
-			for(nSample = 0; nSample < this.bufferSizeSamples; nSample++)
-			{
-				sample = (int) NumUtils.bytesToI24LE(buffer, (nSample*3));
-				sample &= ~(this.cutoff);
-				NumUtils.n24ToBytesLE(sample, buffer, (nSample*3));
-			}
-
-			try
-			{
-				this.fileTemp.seek(this.fileTempPos);
-				this.fileTemp.write(buffer);
-			}
-			catch(Exception e)
-			{
-				this.errMsg = "AudioBitCrush.dspLoopI24: Error: RandomAccessFile.write failed.";
-				return false;
-			}
-
-			this.fileTempPos += (long) this.bufferSizeBytes;
+			SIMD_KERNELS.bitCrush(buffer, N_SAMPLES, this.cutoff);
+			return;
 		}
 
-		return true;
+		for(nSample = 0; nSample < N_SAMPLES; nSample++) buffer[nSample] &= ~(this.cutoff);
 	}
 }
-
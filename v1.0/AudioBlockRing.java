@@ -0,0 +1,112 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Bounded ring of reusable slots, each holding a run of consecutive blocks, shared by the stages of a pipeline
+ * (see AudioBaseClass.dspLoopPipelined()).
+ *
+ * Every slot goes through the stages in order: stage 0 (read), stage 1 (DSP), ..., last stage (write),
+ * then back to stage 0. Each stage runs on its own thread and owns one cursor (the number of slots it has finished),
+ * so there are no locks: a stage only waits for the cursor of the stage before it (or, for stage 0,
+ * for the last stage to give the slot back).
+ */
+
+public class AudioBlockRing
+{
+	public static class Slot
+	{
+		public byte[] byteBuffer = null;
+		public int[] buffer = null;
+
+		/*Blocks are stored back to back in byteBuffer, blockFrames[n] frames each.*/
+		public int[] blockFrames = null;
+		public int nBlocks = 0;
+		public int nBytes = 0;
+	}
+
+	/*Spinning only helps when the other stages run on other processors.*/
+	private static final int SPIN_COUNT = (Runtime.getRuntime().availableProcessors() > 1) ? 256 : 0;
+	private static final long PARK_NANOS = 20000L;
+
+	private final Slot[] slots;
+	private final AtomicLong[] cursors;
+
+	private volatile boolean aborted = false;
+
+	public AudioBlockRing(int nSlots, int nStages, int blocksPerSlot, int bufferSizeBytes, int bufferSizeSamples)
+	{
+		int n = 0;
+
+		this.slots = new Slot[nSlots];
+		for(n = 0; n < nSlots; n++)
+		{
+			this.slots[n] = new Slot();
+			this.slots[n].byteBuffer = new byte[blocksPerSlot*bufferSizeBytes];
+			this.slots[n].buffer = new int[bufferSizeSamples];
+			this.slots[n].blockFrames = new int[blocksPerSlot];
+		}
+
+		this.cursors = new AtomicLong[nStages];
+		for(n = 0; n < nStages; n++) this.cursors[n] = new AtomicLong(0L);
+	}
+
+	/*
+	 * Waits until slot number "nSlot" (counting from the start of the stream) is available to "stage", and returns it.
+	 * Returns null if the pipeline was aborted.
+	 */
+
+	public Slot acquire(int stage, long nSlot)
+	{
+		int nSpin = 0;
+
+		while(!this.available(stage, nSlot))
+		{
+			if(this.aborted) return null;
+
+			if(nSpin < SPIN_COUNT)
+			{
+				Thread.onSpinWait();
+				nSpin++;
+			}
+			else LockSupport.parkNanos(PARK_NANOS);
+		}
+
+		if(this.aborted) return null;
+
+		return this.slots[(int) (nSlot%((long) this.slots.length))];
+	}
+
+	/*
+	 * Hands slot number "nSlot" over to the next stage.
+	 */
+
+	public void release(int stage, long nSlot)
+	{
+		this.cursors[stage].lazySet(nSlot + 1L);
+	}
+
+	public void abort()
+	{
+		this.aborted = true;
+	}
+
+	public boolean isAborted()
+	{
+		return this.aborted;
+	}
+
+	private boolean available(int stage, long nSlot)
+	{
+		if(stage == 0) return (nSlot < (this.cursors[this.cursors.length - 1].get() + ((long) this.slots.length)));
+
+		return (nSlot < this.cursors[stage - 1].get());
+	}
+}
@@ -0,0 +1,438 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Properties;
+
+/*
+ * Block size auto-tuner: measures the throughput of a full effect run (read, DSP, write) for several block sizes
+ * on this machine, and saves the fastest one to a profile file that later runs load.
+ *
+ * The test file and the output files go to workDir. To measure that directory's storage rather than the page cache,
+ * the test file is flushed to disk and dropped from the page cache before every run, and every run's time includes
+ * flushing its output to disk. Dropping a file from the page cache uses "dd iflag=nocache" (GNU coreutils); where
+ * that is not available the reads come from memory: the result is then saved as a CPU/memory profile
+ * ("<host>.storage=false"), not a storage one.
+ *
+ * The profile is a properties file shared by the whole fleet if user.home is: every entry is keyed by host name,
+ * so each host keeps its own setting. Default location: ~/.audiofx_profile, or -Daudiofx.profile=<file>.
+ * Block sizes are stored in bytes, so the same setting fits every sample format and number of channels.
+ */
+
+public class AudioBufferTuner
+{
+	protected static final int[] BUFFER_SIZES = {0x800, 0x1000, 0x2000, 0x4000, 0x8000, 0x10000, 0x20000, 0x40000, 0x80000, 0x100000};
+	protected static final int TEST_SIZE_DEFAULT = 0x4000000; /*64 MiB*/
+	protected static final int TUNE_ROUNDS = 3;
+
+	/*Sizes within this fraction of the best throughput count as a tie: the smallest one wins (less memory, less noise).*/
+	protected static final double TIE_MARGIN = 0.03;
+
+	protected static final String KEY_BUFFER_SIZE = ".bufferSizeBytes";
+	protected static final String KEY_THROUGHPUT = ".throughput";
+	protected static final String KEY_DATE = ".tuned";
+	protected static final String KEY_STORAGE = ".storage";
+	protected static final String LOCK_SUFFIX = ".lock";
+
+	/*FileChannel.lock() is per process: threads of one process take this first.*/
+	protected static final Object SAVE_LOCK = new Object();
+
+	/*Resolved once (it may wait for DNS).*/
+	protected static String host = null;
+
+	protected String workDir = "";
+	protected String profileDir = "";
+	protected int testSize = TEST_SIZE_DEFAULT;
+
+	/*Results of the last tune(): throughput in MiB/s for every entry of BUFFER_SIZES.*/
+	protected double[] throughput = new double[BUFFER_SIZES.length];
+	protected int bestSize = 0;
+
+	/*True if every run of the last tune() read its input from storage (the page cache could be dropped).*/
+	protected boolean storageBound = false;
+
+	protected String errMsg = "";
+
+	public AudioBufferTuner(String workDir)
+	{
+		this.workDir = workDir.equals("") ? System.getProperty("java.io.tmpdir") : workDir;
+		this.profileDir = profileDefault();
+	}
+
+	public void setProfile(String profileDir)
+	{
+		this.profileDir = profileDir;
+	}
+
+	public String getProfile()
+	{
+		return this.profileDir;
+	}
+
+	public boolean setTestSize(int nBytes)
+	{
+		if(nBytes < BUFFER_SIZES[BUFFER_SIZES.length - 1])
+		{
+			this.errMsg = "AudioBufferTuner.setTestSize: Error: test file must be at least " + BUFFER_SIZES[BUFFER_SIZES.length - 1] + " bytes.";
+			return false;
+		}
+
+		this.testSize = nBytes;
+		return true;
+	}
+
+	public static int[] getBufferSizes()
+	{
+		return BUFFER_SIZES.clone();
+	}
+
+	public double[] getThroughput()
+	{
+		return this.throughput.clone();
+	}
+
+	public int getBestSize()
+	{
+		return this.bestSize;
+	}
+
+	public boolean getStorageBound()
+	{
+		return this.storageBound;
+	}
+
+	public String getLastErrorMessage()
+	{
+		return this.errMsg;
+	}
+
+	/*
+	 * Writes a stereo 16-bit test file of testSize bytes, then times TUNE_ROUNDS channel swap runs over it
+	 * for every block size (after one warm-up run) and keeps the best time of each. The test file is taken out of
+	 * the page cache before every run, where possible.
+	 */
+
+	public boolean tune()
+	{
+		final File TEST_FILE = new File(this.workDir, "audiofx_tune_" + ProcessHandle.current().pid() + ".wav");
+		final File OUTPUT_FILE = new File(this.workDir, "audiofx_tune_" + ProcessHandle.current().pid() + "_out.wav");
+
+		AudioGenerator generator = null;
+		double bestThroughput = 0.0;
+		long time = 0L;
+		long bestTime = 0L;
+		int nSize = 0;
+		int nRound = 0;
+
+		new File(this.workDir).mkdirs();
+
+		generator = new AudioGenerator(TEST_FILE.getPath());
+		generator.setFormat(44100, 16, 2);
+		generator.setDuration(((double) this.testSize)/(44100.0*4.0));
+		generator.setSignal(AudioGenerator.Signals.NOISE);
+
+		if(!generator.initialize() || !generator.runDSP())
+		{
+			this.errMsg = "AudioBufferTuner.tune: Error: failed to create test file: " + generator.getLastErrorMessage();
+			generator.deinitialize();
+			TEST_FILE.delete();
+			return false;
+		}
+
+		generator.deinitialize();
+
+		if(!fileSync(TEST_FILE))
+		{
+			this.errMsg = "AudioBufferTuner.tune: Error: failed to flush test file to disk.";
+			TEST_FILE.delete();
+			return false;
+		}
+
+		this.storageBound = true;
+
+		/*Warm-up: JIT compilation.*/
+		if(this.runTimed(TEST_FILE, OUTPUT_FILE, BUFFER_SIZES[0]) < 0L)
+		{
+			TEST_FILE.delete();
+			OUTPUT_FILE.delete();
+			return false;
+		}
+
+		for(nSize = 0; nSize < BUFFER_SIZES.length; nSize++)
+		{
+			bestTime = Long.MAX_VALUE;
+
+			for(nRound = 0; nRound < TUNE_ROUNDS; nRound++)
+			{
+				time = this.runTimed(TEST_FILE, OUTPUT_FILE, BUFFER_SIZES[nSize]);
+				if(time < 0L)
+				{
+					TEST_FILE.delete();
+					OUTPUT_FILE.delete();
+					return false;
+				}
+
+				bestTime = Math.min(bestTime, time);
+			}
+
+			this.throughput[nSize] = (((double) this.testSize)/1048576.0)/(((double) Math.max(bestTime, 1L))/1.0e9);
+			bestThroughput = Math.max(bestThroughput, this.throughput[nSize]);
+		}
+
+		TEST_FILE.delete();
+		OUTPUT_FILE.delete();
+
+		for(nSize = 0; nSize < BUFFER_SIZES.length; nSize++)
+		{
+			if(this.throughput[nSize] >= (1.0 - TIE_MARGIN)*bestThroughput)
+			{
+				this.bestSize = BUFFER_SIZES[nSize];
+				break;
+			}
+		}
+
+		return true;
+	}
+
+	/*
+	 * Stores the result of the last tune() under this host's name, keeping the other hosts' entries.
+	 * The profile is read and replaced under a lock on "<profile>.lock", so concurrent saves (from any process) keep
+	 * each other's entries, and it is written to a temporary file first, so readers never see a partial profile.
+	 */
+
+	public boolean profileSave()
+	{
+		final String HOST = hostName();
+		final File PROFILE_FILE = new File(this.profileDir).getAbsoluteFile();
+		final File LOCK_FILE = new File(PROFILE_FILE.getPath() + LOCK_SUFFIX);
+
+		Properties profile = null;
+		File profileTemp = null;
+		FileLock lock = null;
+		double bestThroughput = 0.0;
+		int nSize = 0;
+
+		if(this.bestSize <= 0)
+		{
+			this.errMsg = "AudioBufferTuner.profileSave: Error: nothing to save, tune() has not run.";
+			return false;
+		}
+
+		for(nSize = 0; nSize < BUFFER_SIZES.length; nSize++)
+			if(BUFFER_SIZES[nSize] == this.bestSize)
+				bestThroughput = this.throughput[nSize];
+
+		if(PROFILE_FILE.getParentFile() != null) PROFILE_FILE.getParentFile().mkdirs();
+
+		synchronized(SAVE_LOCK)
+		{
+			try(FileChannel lockChannel = FileChannel.open(LOCK_FILE.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE))
+			{
+				lock = lockChannel.lock();
+
+				try
+				{
+					/*Read under the lock: entries saved meanwhile by other hosts are kept.*/
+					profile = profileRead(PROFILE_FILE.getPath());
+
+					profile.setProperty(HOST + KEY_BUFFER_SIZE, Integer.toString(this.bestSize));
+					profile.setProperty(HOST + KEY_THROUGHPUT, String.format("%.1f", bestThroughput));
+					profile.setProperty(HOST + KEY_DATE, LocalDateTime.now().withNano(0).toString());
+					profile.setProperty(HOST + KEY_STORAGE, Boolean.toString(this.storageBound));
+
+					profileTemp = File.createTempFile(".audiofx_profile", ".tmp", PROFILE_FILE.getParentFile());
+
+					try(Writer writer = new FileWriter(profileTemp))
+					{
+						profile.store(writer, "Audio FX block size profile (bytes per block, MiB/s), one entry per host");
+					}
+
+					Files.move(profileTemp.toPath(), PROFILE_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+				finally
+				{
+					lock.release();
+				}
+			}
+			catch(Exception e)
+			{
+				if(profileTemp != null) profileTemp.delete();
+				this.errMsg = "AudioBufferTuner.profileSave: Error: failed to write profile file.";
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/*
+	 * Block size in bytes saved for this host in the given profile file, or 0 if there is none.
+	 */
+
+	public static int profileLoad(String profileDir)
+	{
+		String value = profileRead(profileDir).getProperty(hostName() + KEY_BUFFER_SIZE);
+
+		if(value == null) return 0;
+
+		try
+		{
+			return Integer.parseInt(value.trim());
+		}
+		catch(Exception e)
+		{
+			return 0;
+		}
+	}
+
+	public static int profileLoad()
+	{
+		return profileLoad(profileDefault());
+	}
+
+	public static String profileDefault()
+	{
+		return System.getProperty("audiofx.profile", new File(System.getProperty("user.home"), ".audiofx_profile").getPath());
+	}
+
+	protected static Properties profileRead(String profileDir)
+	{
+		Properties profile = new Properties();
+
+		if(!new File(profileDir).isFile()) return profile;
+
+		try(Reader reader = new FileReader(profileDir))
+		{
+			profile.load(reader);
+		}
+		catch(Exception e)
+		{
+			/*Unreadable profile: same as no profile.*/
+			profile.clear();
+		}
+
+		return profile;
+	}
+
+	protected static synchronized String hostName()
+	{
+		if(host != null) return host;
+
+		try
+		{
+			host = InetAddress.getLocalHost().getHostName();
+		}
+		catch(Exception e)
+		{
+			host = System.getenv("HOSTNAME");
+		}
+
+		if((host == null) || host.equals("")) host = "localhost";
+
+		return host;
+	}
+
+	/*
+	 * Runs the channel swap effect over fileIn with the given block size. Returns the run time in nanoseconds, or -1.
+	 */
+
+	protected long runTimed(File fileIn, File fileOut, int bufferSize)
+	{
+		AudioBaseClass audioobj = new AudioChannelSwap(fileIn.getPath(), fileOut.getPath());
+		long timeBegin = 0L;
+		long timeEnd = 0L;
+
+		audioobj.setInteractive(false);
+		audioobj.setParallelism(1);
+		audioobj.setBufferSizeBytes(bufferSize);
+
+		/*Not timed: the previous run's output is flushed already, and the input must come from storage.*/
+		if(this.storageBound && !fileCacheDrop(fileIn)) this.storageBound = false;
+
+		timeBegin = System.nanoTime();
+
+		if(!audioobj.initialize() || !audioobj.runDSP())
+		{
+			this.errMsg = "AudioBufferTuner.runTimed: Error: test run failed: " + audioobj.getLastErrorMessage();
+			audioobj.deinitialize();
+			return -1L;
+		}
+
+		audioobj.deinitialize();
+
+		/*The output counts once it is on disk, not once it is in the page cache.*/
+		if(!fileSync(fileOut))
+		{
+			this.errMsg = "AudioBufferTuner.runTimed: Error: failed to flush output file to disk.";
+			return -1L;
+		}
+
+		timeEnd = System.nanoTime();
+
+		return (timeEnd - timeBegin);
+	}
+
+	/*
+	 * Flushes a file's data to the storage device.
+	 */
+
+	protected static boolean fileSync(File file)
+	{
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE))
+		{
+			channel.force(true);
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Drops a (flushed) file from the page cache: "dd iflag=nocache count=0" advises the kernel to drop the whole file
+	 * (posix_fadvise(POSIX_FADV_DONTNEED), which Java cannot call). Returns false if that is not possible here.
+	 */
+
+	protected static boolean fileCacheDrop(File file)
+	{
+		Process dd = null;
+
+		try
+		{
+			dd = new ProcessBuilder("dd", ("if=" + file.getPath()), "iflag=nocache", "count=0")
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.redirectError(ProcessBuilder.Redirect.DISCARD)
+				.start();
+
+			return (dd.waitFor() == 0);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		catch(Exception e)
+		{
+			/*No dd (or not GNU dd).*/
+			return false;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.util.ArrayList;
+
+/*
+ * Effect chain: applies several effects in a single pass over the file.
+ * Each block is read and decoded once, goes through every effect's dspBlockProcess() in chain order,
+ * and is encoded and written once.
+ *
+ * Chain syntax: comma separated effect names, with an optional ":<value>" parameter (bitcrush level).
+ * Example: "chswap,bitcrush:4,chsub"
+ *
+ * An odd number of "reverse" stages makes the chain read the blocks backwards (like AudioReverse does),
+ * while the "reverse" stages reverse the frames within each block.
+ */
+
+public class AudioChain extends AudioBaseClass
+{
+	protected ArrayList<AudioBaseClass> stages = new ArrayList<AudioBaseClass>();
+	protected ArrayList<Integer> stageParams = new ArrayList<Integer>();
+
+	protected boolean reverseOrder = false;
+
+	public AudioChain(String fileInDir)
+	{
+		super(fileInDir);
+	}
+
+	public AudioChain(String fileInDir, String fileOutDir)
+	{
+		super(fileInDir, fileOutDir);
+	}
+
+	public boolean setChain(String chainSpec)
+	{
+		AudioBaseClass stage = null;
+		String effect = "";
+		String paramSpec = null;
+		int param = 0;
+		int nChar = 0;
+
+		this.stages.clear();
+		this.stageParams.clear();
+
+		for(String stageSpec : chainSpec.split(","))
+		{
+			effect = stageSpec.trim().toLowerCase();
+			paramSpec = null;
+			param = 0;
+
+			nChar = effect.indexOf(':');
+			if(nChar >= 0)
+			{
+				paramSpec = effect.substring(nChar + 1).trim();
+				effect = effect.substring(0, nChar).trim();
+			}
+
+			stage = AudioBatch.createEffect(effect, this.fileInDir, this.fileOutDir);
+
+			if((stage == null) || (stage instanceof AudioChain))
+			{
+				this.errMsg = "AudioChain.setChain: Error: unknown effect \"" + effect + "\".";
+				return false;
+			}
+
+			if(paramSpec != null)
+			{
+				/*Only Bit Crush takes a parameter (its level).*/
+				if(!(stage instanceof AudioBitCrush))
+				{
+					this.errMsg = "AudioChain.setChain: Error: effect \"" + effect + "\" takes no parameter.";
+					return false;
+				}
+
+				try
+				{
+					param = Integer.parseInt(paramSpec);
+				}
+				catch(Exception e)
+				{
+					this.errMsg = "AudioChain.setChain: Error: invalid parameter in \"" + stageSpec + "\".";
+					return false;
+				}
+			}
+
+			this.stages.add(stage);
+			this.stageParams.add(param);
+		}
+
+		return true;
+	}
+
+	/*
+	 * Called by runDSP()/runStream() once the stream parameters are known: sets up the stages.
+	 */
+
+	@Override
+	protected boolean dspStreamCheck()
+	{
+		return this.dspStagesInit();
+	}
+
+	@Override
+	protected boolean dspReverseOrder()
+	{
+		return this.reverseOrder;
+	}
+
+	/*
+	 * Every stage's effect and parameters, in chain order.
+	 */
+
+	@Override
+	protected String dspParams()
+	{
+		StringBuilder params = new StringBuilder();
+
+		for(AudioBaseClass stage : this.stages) params.append(stage.getClass().getSimpleName()).append('(').append(stage.dspParams()).append(");");
+
+		return params.toString();
+	}
+
+	@Override
+	protected void dspBlockProcess(int[] buffer, int nFrames)
+	{
+		for(AudioBaseClass stage : this.stages) stage.dspBlockProcess(buffer, nFrames);
+	}
+
+	protected boolean dspStagesInit()
+	{
+		AudioBaseClass stage = null;
+		int nStage = 0;
+		int nReverse = 0;
+
+		if(this.stages.isEmpty())
+		{
+			this.errMsg = "AudioChain.dspStagesInit: Error: effect chain is empty.";
+			return false;
+		}
+
+		for(nStage = 0; nStage < this.stages.size(); nStage++)
+		{
+			stage = this.stages.get(nStage);
+			stage.dspCopyStreamParams(this);
+
+			if(stage instanceof AudioBitCrush)
+			{
+				if(!((AudioBitCrush) stage).setCutoff(this.stageParams.get(nStage)))
+				{
+					this.errMsg = stage.errMsg;
+					return false;
+				}
+			}
+
+			if(stage instanceof AudioReverse) nReverse++;
+
+			if(!stage.dspStreamCheck())
+			{
+				this.errMsg = stage.errMsg;
+				return false;
+			}
+		}
+
+		/*Two reverse stages cancel each other out.*/
+		this.reverseOrder = ((nReverse%2) != 0);
+
+		return true;
+	}
+}
@@ -6,9 +6,6 @@
  * Email: rafaelmsabe@gmail.com
  */
 
-import java.io.*;
-import java.util.Arrays;
-
 public class AudioChannelSubtract extends AudioBaseClass
 {
 	public AudioChannelSubtract(String fileInDir)
@@ -22,231 +19,144 @@ public class AudioChannelSubtract extends AudioBaseClass
 	}
 
 	@Override
-	public boolean runDSP()
+	protected void dspBlockProcess(int[] buffer, int nFrames)
 	{
-		if(this.status != AudioBaseClass.Status.INITIALIZED) return false;
-
-		if(this.nChannels < 2)
-		{
-			this.errMsg = "AudioChannelSubtract.runDSP: Error: this effect requires at least 2 channel audio signal.";
-			return false;
-		}
-
-		if(!this.fileTempCreate())
-		{
-			this.errMsg = "AudioChannelSubtract.runDSP: Error: failed to create temporary DSP file.";
-			return false;
-		}
-
-		this.fileInPos = this.audioDataBegin;
-		this.fileTempPos = 0L;
-
 		switch(this.format)
 		{
-			case I16:
-				if(!this.dspLoopI16())
-				{
-					this.fileTempClose();
-					return false;
-				}
-				break;
-
-			case I24:
-				if(!this.dspLoopI24())
-				{
-					this.fileTempClose();
-					return false;
-				}
-				break;
-		}
+			case I32:
+				this.dspBlockProcessI32(buffer, nFrames);
+				return;
 
-		this.fileTempClose();
+			case F32:
+				this.dspBlockProcessF32(buffer, nFrames);
+				return;
+		}
 
-		return this.rawToWavProc();
+		this.dspBlockProcessI16I24(buffer, nFrames);
 	}
 
-	private boolean dspLoopI16()
+	protected void dspBlockProcessI16I24(int[] buffer, int nFrames)
 	{
-		final int SAMPLE_MAX_VALUE = 0x7fff;
-		final int SAMPLE_MIN_VALUE = -0x8000;
-
-		byte[] byteBuffer = new byte[this.bufferSizeBytes];
-
-		short[] buffer = new short[this.bufferSizeSamples];
+		final int SAMPLE_MAX_VALUE = (this.format == AudioBaseClass.Formats.I16) ? 0x7fff : 0x7fffff;
+		final int SAMPLE_MIN_VALUE = (this.format == AudioBaseClass.Formats.I16) ? -0x8000 : -0x800000;
 
 		int nFrame = 0;
 		int nSample = 0;
 		int nChannel = 0;
-		int nByte = 0;
 
 		int monoSample = 0;
 		int channelSample = 0;
 
-		while(this.fileInPos < this.audioDataEnd)
-		{
-			Arrays.fill(byteBuffer, (byte) 0);
+		if((SIMD_KERNELS != null) && SIMD_KERNELS.channelSubtract(buffer, nFrames, this.nChannels, SAMPLE_MAX_VALUE, SAMPLE_MIN_VALUE)) return;
 
-			try
-			{
-				this.fileIn.seek(this.fileInPos);
-				this.fileIn.readFully(byteBuffer);
-			}
-			catch(EOFException eof_e)
-			{
-				/*IGNORE*/
-			}
-			catch(Exception e)
+		for(nFrame = 0; nFrame < nFrames; nFrame++)
+		{
+			monoSample = 0;
+			for(nChannel = 0; nChannel < this.nChannels; nChannel++)
 			{
-				this.errMsg = "AudioChannelSubtract.dspLoopI16: Error: RandomAccessFile.readFully failed.";
-				return false;
+				nSample = nFrame*this.nChannels + nChannel;
+				monoSample += buffer[nSample];
 			}
 
-			this.fileInPos += (long) this.bufferSizeBytes;
-
-			nByte = 0;
-			for(nSample = 0; nSample < this.bufferSizeSamples; nSample++)
+			for(nChannel = 0; nChannel < this.nChannels; nChannel++)
 			{
-				buffer[nSample] = (short) NumUtils.bytesToI16LE(byteBuffer, nByte);
-				nByte += 2;
-			}
+				nSample = nFrame*this.nChannels + nChannel;
 
-			for(nFrame = 0; nFrame < this.bufferSizeFrames; nFrame++)
-			{
-				monoSample = 0;
-				for(nChannel = 0; nChannel < this.nChannels; nChannel++)
-				{
-					nSample = nFrame*this.nChannels + nChannel;
-					monoSample += (int) buffer[nSample];
-				}
-
-				for(nChannel = 0; nChannel < this.nChannels; nChannel++)
-				{
-					nSample = nFrame*this.nChannels + nChannel;
-
-					channelSample = (int) buffer[nSample];
-					channelSample *= this.nChannels;
-					channelSample -= monoSample;
-					channelSample /= this.nChannels;
-
-					if(channelSample > SAMPLE_MAX_VALUE) buffer[nSample] = (short) SAMPLE_MAX_VALUE;
-					else if(channelSample < SAMPLE_MIN_VALUE) buffer[nSample] = (short) SAMPLE_MIN_VALUE;
-					else buffer[nSample] = (short) channelSample;
-				}
-			}
+				channelSample = buffer[nSample];
+				channelSample *= this.nChannels;
+				channelSample -= monoSample;
+				channelSample /= this.nChannels;
 
-			nByte = 0;
-			for(nSample = 0; nSample < this.bufferSizeSamples; nSample++)
-			{
-				NumUtils.n16ToBytesLE(buffer[nSample], byteBuffer, nByte);
-				nByte += 2;
+				if(channelSample > SAMPLE_MAX_VALUE) buffer[nSample] = SAMPLE_MAX_VALUE;
+				else if(channelSample < SAMPLE_MIN_VALUE) buffer[nSample] = SAMPLE_MIN_VALUE;
+				else buffer[nSample] = channelSample;
 			}
-
-			try
-			{
-				this.fileTemp.seek(this.fileTempPos);
-				this.fileTemp.write(byteBuffer);
-			}
-			catch(Exception e)
-			{
-				this.errMsg = "AudioChannelSubtract.dspLoopI16: Error: RandomAccessFile.write failed.";
-				return false;
-			}
-
-			this.fileTempPos += (long) this.bufferSizeBytes;
 		}
-
-		return true;
 	}
 
-	private boolean dspLoopI24()
-	{
-		final int SAMPLE_MAX_VALUE = 0x7fffff;
-		final int SAMPLE_MIN_VALUE = -0x800000;
-
-		byte[] byteBuffer = new byte[this.bufferSizeBytes];
-
-		int[] buffer = new int[this.bufferSizeSamples];
+	/*
+	 * 32-bit integer samples: the sums do not fit an int, so they are done in long.
+	 */
 
+	protected void dspBlockProcessI32(int[] buffer, int nFrames)
+	{
 		int nFrame = 0;
 		int nSample = 0;
 		int nChannel = 0;
-		int nByte = 0;
 
-		int monoSample = 0;
+		long monoSample = 0L;
+		long channelSample = 0L;
 
-		while(this.fileInPos < this.audioDataEnd)
+		for(nFrame = 0; nFrame < nFrames; nFrame++)
 		{
-			Arrays.fill(byteBuffer, (byte) 0);
-
-			try
-			{
-				this.fileIn.seek(this.fileInPos);
-				this.fileIn.readFully(byteBuffer);
-			}
-			catch(EOFException eof_e)
+			monoSample = 0L;
+			for(nChannel = 0; nChannel < this.nChannels; nChannel++)
 			{
-				/*IGNORE*/
+				nSample = nFrame*this.nChannels + nChannel;
+				monoSample += (long) buffer[nSample];
 			}
-			catch(Exception e)
-			{
-				this.errMsg = "AudioChannelSubtract.dspLoopI24: Error: RandomAccessFile.readFully failed.";
-				return false;
-			}
-
-			this.fileInPos += (long) this.bufferSizeBytes;
 
-			nByte = 0;
-			for(nSample = 0; nSample < this.bufferSizeSamples; nSample++)
+			for(nChannel = 0; nChannel < this.nChannels; nChannel++)
 			{
-				buffer[nSample] = (int) NumUtils.bytesToI24LE(byteBuffer, nByte);
-				nByte += 3;
-			}
+				nSample = nFrame*this.nChannels + nChannel;
 
-			for(nFrame = 0; nFrame < this.bufferSizeFrames; nFrame++)
-			{
-				monoSample = 0;
+				channelSample = (long) buffer[nSample];
+				channelSample *= (long) this.nChannels;
+				channelSample -= monoSample;
+				channelSample /= (long) this.nChannels;
 
-				for(nChannel = 0; nChannel < this.nChannels; nChannel++)
-				{
-					nSample = nFrame*this.nChannels + nChannel;
-					monoSample += buffer[nSample];
-				}
+				if(channelSample > (long) Integer.MAX_VALUE) buffer[nSample] = Integer.MAX_VALUE;
+				else if(channelSample < (long) Integer.MIN_VALUE) buffer[nSample] = Integer.MIN_VALUE;
+				else buffer[nSample] = (int) channelSample;
+			}
+		}
+	}
 
-				for(nChannel = 0; nChannel < this.nChannels; nChannel++)
-				{
-					nSample = nFrame*this.nChannels + nChannel;
+	/*
+	 * 32-bit float samples: no clipping, float has the headroom.
+	 */
 
-					buffer[nSample] *= this.nChannels;
-					buffer[nSample] -= monoSample;
-					buffer[nSample] /= this.nChannels;
+	protected void dspBlockProcessF32(int[] buffer, int nFrames)
+	{
+		int nFrame = 0;
+		int nSample = 0;
+		int nChannel = 0;
 
-					if(buffer[nSample] > SAMPLE_MAX_VALUE) buffer[nSample] = SAMPLE_MAX_VALUE;
-					else if(buffer[nSample] < SAMPLE_MIN_VALUE) buffer[nSample] = SAMPLE_MIN_VALUE;
-				}
-			}
+		float monoSample = 0.0f;
+		float channelSample = 0.0f;
 
-			nByte = 0;
-			for(nSample = 0; nSample < this.bufferSizeSamples; nSample++)
+		for(nFrame = 0; nFrame < nFrames; nFrame++)
+		{
+			monoSample = 0.0f;
+			for(nChannel = 0; nChannel < this.nChannels; nChannel++)
 			{
-				NumUtils.n24ToBytesLE(buffer[nSample], byteBuffer, nByte);
-				nByte += 3;
+				nSample = nFrame*this.nChannels + nChannel;
+				monoSample += Float.intBitsToFloat(buffer[nSample]);
 			}
 
-			try
+			for(nChannel = 0; nChannel < this.nChannels; nChannel++)
 			{
-				this.fileTemp.seek(this.fileTempPos);
-				this.fileTemp.write(byteBuffer);
-			}
-			catch(Exception e)
-			{
-				this.errMsg = "AudioChannelSubtract.dspLoopI24: Error: RandomAccessFile.write failed.";
-				return false;
+				nSample = nFrame*this.nChannels + nChannel;
+
+				channelSample = Float.intBitsToFloat(buffer[nSample]);
+				channelSample *= (float) this.nChannels;
+				channelSample -= monoSample;
+				channelSample /= (float) this.nChannels;
+
+				buffer[nSample] = Float.floatToRawIntBits(channelSample);
 			}
+		}
+	}
 
-			this.fileTempPos += (long) this.bufferSizeBytes;
+	@Override
+	protected boolean dspStreamCheck()
+	{
+		if(this.nChannels < 2)
+		{
+			this.errMsg = "AudioChannelSubtract.dspStreamCheck: Error: this effect requires at least 2 channel audio signal.";
+			return false;
 		}
 
 		return true;
 	}
 }
-
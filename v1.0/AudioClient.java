@@ -0,0 +1,89 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/*
+ * Client side of the AudioDaemon protocol: sends one request line and waits for its response line.
+ */
+
+public class AudioClient
+{
+	protected String socketDir = "";
+
+	protected String errMsg = "";
+
+	public AudioClient(String socketDir)
+	{
+		this.socketDir = socketDir.equals("") ? AudioDaemon.socketDefault() : socketDir;
+	}
+
+	public String getLastErrorMessage()
+	{
+		return this.errMsg;
+	}
+
+	/*
+	 * "run" request line for one file. Paths are made absolute, since the daemon has its own working directory.
+	 * chainSpec is only used by "chain", level only by "bitcrush"; bufferSize 0 means the daemon's default.
+	 */
+
+	public static String runRequest(String effect, String fileIn, String fileOut, int level, String chainSpec, int bufferSize)
+	{
+		String request = "run\teffect=" + effect + "\tin=" + Path.of(fileIn).toAbsolutePath() + "\tout=" + Path.of(fileOut).toAbsolutePath();
+
+		if(effect.equals("bitcrush")) request += "\tlevel=" + level;
+		if(effect.equals("chain")) request += "\tchain=" + chainSpec;
+		if(bufferSize > 0) request += "\tbuffer=" + bufferSize;
+
+		return request;
+	}
+
+	/*
+	 * Sends "request" and returns the daemon's response line, or null (errMsg set) if the daemon cannot be reached.
+	 */
+
+	public String send(String request)
+	{
+		BufferedReader reader = null;
+		Writer writer = null;
+		String response = null;
+
+		try(SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX))
+		{
+			channel.connect(UnixDomainSocketAddress.of(this.socketDir));
+
+			reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+			writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+
+			writer.write(request);
+			writer.write('\n');
+			writer.flush();
+
+			response = reader.readLine();
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioClient.send: Error: cannot reach daemon at \"" + this.socketDir + "\".";
+			return null;
+		}
+
+		if(response == null) this.errMsg = "AudioClient.send: Error: daemon closed the connection.";
+
+		return response;
+	}
+}
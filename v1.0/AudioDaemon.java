@@ -0,0 +1,663 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/*
+ * Resident job server: listens on a Unix domain socket and runs effect jobs on a pool of nJobs worker threads,
+ * so clients skip JVM startup, class loading and JIT warm-up (the daemon warms the effects up once, at startup).
+ *
+ * Protocol: UTF-8 lines, fields separated by tabs. Each request gets one response line, in order;
+ * a connection can send any number of requests.
+ * {
+ *	run	effect=<name>	in=<input file>	out=<output file>	[level=<bitcrush level>]	[chain=<chain>]	[buffer=<frames>]
+ *	status
+ *	shutdown
+ * }
+ * Responses: "ok<TAB><JSON object>" (run: the job's metrics report; status: job counts) or "error<TAB><message>".
+ * Paths are taken as they are: clients should send absolute paths.
+ */
+
+public class AudioDaemon
+{
+	protected static final String SOCKET_NAME_DEFAULT = "daemon.sock";
+	protected static final double WARMUP_SECONDS = 10.0;
+	protected static final int WARMUP_ROUNDS = 8;
+
+	/*After a shutdown, connections still busy writing a response get this long before they are closed.*/
+	protected static final long CONNECTION_GRACE_SECONDS = 1L;
+
+	protected String socketDir = "";
+	protected int nJobs = 1;
+
+	/*Result cache shared by every job, or null.*/
+	protected AudioResultCache resultCache = null;
+
+	protected ServerSocketChannel server = null;
+	protected ExecutorService workers = null;
+	protected ExecutorService connections = null;
+
+	protected AtomicInteger nQueued = new AtomicInteger(0);
+	protected AtomicInteger nActive = new AtomicInteger(0);
+	protected AtomicInteger nSucceeded = new AtomicInteger(0);
+	protected AtomicInteger nFailed = new AtomicInteger(0);
+
+	protected volatile boolean stopping = false;
+
+	protected String errMsg = "";
+
+	public AudioDaemon(String socketDir)
+	{
+		this.socketDir = socketDir.equals("") ? socketDefault() : socketDir;
+	}
+
+	/*
+	 * Default socket: daemon.sock in audiofx-<user>, a directory of the system temporary directory that only its owner
+	 * can enter (see socketDirPrivate()).
+	 */
+
+	public static String socketDefault()
+	{
+		return new File(new File(System.getProperty("java.io.tmpdir"), ("audiofx-" + System.getProperty("user.name"))), SOCKET_NAME_DEFAULT).getPath();
+	}
+
+	public boolean setJobs(int nJobs)
+	{
+		if(nJobs < 1)
+		{
+			this.errMsg = "AudioDaemon.setJobs: Error: number of jobs must be at least 1.";
+			return false;
+		}
+
+		this.nJobs = nJobs;
+		return true;
+	}
+
+	public void setResultCache(AudioResultCache cache)
+	{
+		this.resultCache = cache;
+	}
+
+	public String getSocket()
+	{
+		return this.socketDir;
+	}
+
+	public String getLastErrorMessage()
+	{
+		return this.errMsg;
+	}
+
+	/*
+	 * Binds the socket and serves requests until a "shutdown" request (or stop()). Returns false if the socket
+	 * could not be bound.
+	 */
+
+	public boolean run()
+	{
+		final Path SOCKET_PATH = Path.of(this.socketDir).toAbsolutePath();
+
+		SocketChannel client = null;
+
+		if(this.socketDir.equals(socketDefault()) && !this.socketDirPrivate(SOCKET_PATH.getParent())) return false;
+
+		if(!this.socketStale(SOCKET_PATH)) return false;
+
+		if(!this.socketBind(SOCKET_PATH)) return false;
+
+		this.warmup(SOCKET_PATH.getParent());
+
+		this.workers = Executors.newFixedThreadPool(this.nJobs);
+		this.connections = Executors.newCachedThreadPool(AudioDaemon::connectionThread);
+		this.stopping = false;
+
+		while(!this.stopping)
+		{
+			try
+			{
+				client = this.server.accept();
+			}
+			catch(Exception e)
+			{
+				/*Closed by stop().*/
+				break;
+			}
+
+			final SocketChannel CLIENT = client;
+			this.connections.execute(() -> this.serve(CLIENT));
+		}
+
+		this.stop();
+
+		/*Jobs already submitted run to the end, and their clients get the responses.*/
+		this.workers.shutdown();
+		this.connections.shutdown();
+
+		try
+		{
+			while(!this.workers.awaitTermination(1L, TimeUnit.SECONDS));
+
+			/*Idle clients leave their threads blocked in readLine(): the interrupt closes their channels.*/
+			if(!this.connections.awaitTermination(CONNECTION_GRACE_SECONDS, TimeUnit.SECONDS)) this.connections.shutdownNow();
+		}
+		catch(InterruptedException e)
+		{
+			this.connections.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		try
+		{
+			Files.deleteIfExists(SOCKET_PATH);
+		}
+		catch(Exception e)
+		{
+			/*IGNORE*/
+		}
+
+		return true;
+	}
+
+	/*
+	 * Connection threads never keep the JVM alive: run() returns once the jobs are done, whatever the clients do.
+	 */
+
+	protected static Thread connectionThread(Runnable runnable)
+	{
+		Thread thread = new Thread(runnable, "audiofx-connection");
+
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/*
+	 * Creates "dir" as rwx------, or checks that an existing "dir" is a real directory (not a link) owned by this user,
+	 * and makes it rwx------.
+	 */
+
+	protected boolean socketDirPrivate(Path dir)
+	{
+		try
+		{
+			if(!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+
+			if(!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS) || !Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS).getName().equals(System.getProperty("user.name")))
+			{
+				this.errMsg = "AudioDaemon.run: Error: \"" + dir + "\" is not a directory owned by this user.";
+				return false;
+			}
+
+			Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwx------"));
+		}
+		catch(UnsupportedOperationException e)
+		{
+			/*Not a POSIX file system: the socket file permissions are all there is.*/
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioDaemon.run: Error: failed to create socket directory \"" + dir + "\".";
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Clears the way for the socket: a socket file nothing listens on (left by a daemon that did not shut down cleanly)
+	 * is deleted. Returns false if a daemon still accepts connections on it.
+	 */
+
+	protected boolean socketStale(Path socketPath)
+	{
+		if(!Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS)) return true;
+
+		try(SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX))
+		{
+			channel.connect(UnixDomainSocketAddress.of(socketPath));
+
+			this.errMsg = "AudioDaemon.run: Error: a daemon is already running on \"" + socketPath + "\".";
+			return false;
+		}
+		catch(Exception e)
+		{
+			/*Nothing listens on it.*/
+		}
+
+		try
+		{
+			Files.delete(socketPath);
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioDaemon.run: Error: failed to remove stale socket \"" + socketPath + "\".";
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Binds the server socket in a new rwx------ directory next to socketPath, makes it rw-------, and only then renames it
+	 * to socketPath: no client can connect before the permissions are set.
+	 */
+
+	protected boolean socketBind(Path socketPath)
+	{
+		Path bindDir = null;
+		Path bindPath = null;
+		boolean done = false;
+
+		try
+		{
+			try
+			{
+				bindDir = Files.createTempDirectory(socketPath.getParent(), ".audiofx_bind", PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			}
+			catch(UnsupportedOperationException e)
+			{
+				bindDir = Files.createTempDirectory(socketPath.getParent(), ".audiofx_bind");
+			}
+
+			bindPath = bindDir.resolve(SOCKET_NAME_DEFAULT);
+
+			this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			this.server.bind(UnixDomainSocketAddress.of(bindPath));
+
+			try
+			{
+				Files.setPosixFilePermissions(bindPath, PosixFilePermissions.fromString("rw-------"));
+			}
+			catch(UnsupportedOperationException e)
+			{
+				/*Not a POSIX file system: keep the default permissions.*/
+			}
+
+			Files.move(bindPath, socketPath, StandardCopyOption.ATOMIC_MOVE);
+			done = true;
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioDaemon.run: Error: failed to bind socket \"" + this.socketDir + "\".";
+		}
+
+		try
+		{
+			if(bindPath != null) Files.deleteIfExists(bindPath);
+			if(bindDir != null) Files.deleteIfExists(bindDir);
+		}
+		catch(Exception e)
+		{
+			/*IGNORE*/
+		}
+
+		if(!done) this.stop();
+
+		return done;
+	}
+
+	/*
+	 * True if the peer runs as the same user as the daemon. Systems without peer credentials rely on the socket
+	 * and directory permissions alone.
+	 */
+
+	protected boolean peerAllowed(SocketChannel channel)
+	{
+		UnixDomainPrincipal peer = null;
+
+		try
+		{
+			peer = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+		}
+		catch(UnsupportedOperationException e)
+		{
+			return true;
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return peer.user().getName().equals(System.getProperty("user.name"));
+	}
+
+	/*
+	 * Stops accepting connections; jobs already submitted still run, then run() closes the remaining connections.
+	 * Thread-safe.
+	 */
+
+	public void stop()
+	{
+		this.stopping = true;
+
+		try
+		{
+			if(this.server != null) this.server.close();
+		}
+		catch(Exception e)
+		{
+			/*IGNORE*/
+		}
+	}
+
+	/*
+	 * Runs every effect WARMUP_ROUNDS times, through jobRun() (so with the same engine settings and block size as the
+	 * real jobs, without the result cache), over generated 16-bit stereo and 24-bit 5.1 files: enough blocks for the
+	 * block loops and effects to be compiled by C2 before the first client connects.
+	 * The files go in a new rwx------ directory of "dir" (the socket directory), with a random name.
+	 */
+
+	protected void warmup(Path dir)
+	{
+		final String[][] JOBS = {
+			{"effect=bitcrush", "level=4"},
+			{"effect=reverse"},
+			{"effect=chswap"},
+			{"effect=chsub"},
+			{"effect=chain", "chain=chswap,bitcrush:4,chsub"}
+		};
+		final int[][] FORMATS = {{16, 2}, {24, 6}};
+
+		Map<String, String> params = null;
+		Path warmupDir = null;
+		String warmupIn = "";
+		String warmupOut = "";
+		int nRound = 0;
+		int nChar = 0;
+
+		try
+		{
+			try
+			{
+				warmupDir = Files.createTempDirectory(dir, ".audiofx_warmup", PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			}
+			catch(UnsupportedOperationException e)
+			{
+				warmupDir = Files.createTempDirectory(dir, ".audiofx_warmup");
+			}
+		}
+		catch(Exception e)
+		{
+			/*No warm-up: the first jobs just run slower.*/
+			return;
+		}
+
+		warmupIn = warmupDir.resolve("warmup.wav").toString();
+		warmupOut = warmupDir.resolve("warmup_out.wav").toString();
+
+		for(int[] format : FORMATS)
+		{
+			if(!this.warmupFileCreate(warmupIn, format[0], format[1])) continue;
+
+			for(nRound = 0; nRound < WARMUP_ROUNDS; nRound++)
+			{
+				for(String[] job : JOBS)
+				{
+					params = new HashMap<String, String>();
+
+					for(String field : job)
+					{
+						nChar = field.indexOf('=');
+						params.put(field.substring(0, nChar), field.substring(nChar + 1));
+					}
+
+					this.jobRun(AudioBatch.createEffect(params.get("effect"), warmupIn, warmupOut), params, null);
+				}
+			}
+		}
+
+		FileManager.fileDelete(warmupIn);
+		FileManager.fileDelete(warmupOut);
+
+		try
+		{
+			Files.deleteIfExists(warmupDir);
+		}
+		catch(Exception e)
+		{
+			/*IGNORE*/
+		}
+	}
+
+	protected boolean warmupFileCreate(String fileDir, int bitDepth, int nChannels)
+	{
+		AudioGenerator generator = new AudioGenerator(fileDir);
+		boolean done = false;
+
+		generator.setInteractive(false);
+		generator.setFormat(44100, bitDepth, nChannels);
+		generator.setDuration(WARMUP_SECONDS);
+		generator.setSignal(AudioGenerator.Signals.NOISE);
+
+		done = generator.initialize() && generator.runDSP();
+		generator.deinitialize();
+
+		return done;
+	}
+
+	protected void serve(SocketChannel client)
+	{
+		BufferedReader reader = null;
+		Writer writer = null;
+		String request = null;
+		String response = "";
+
+		try(SocketChannel channel = client)
+		{
+			if(!this.peerAllowed(channel)) return;
+
+			reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+			writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+
+			while((request = reader.readLine()) != null)
+			{
+				if(request.trim().equals("")) continue;
+
+				response = this.handle(request);
+
+				writer.write(response);
+				writer.write('\n');
+				writer.flush();
+
+				if(this.stopping) break;
+			}
+		}
+		catch(Exception e)
+		{
+			/*Client went away.*/
+		}
+	}
+
+	protected String handle(String request)
+	{
+		final String[] FIELDS = request.split("\t");
+
+		Map<String, String> params = new HashMap<String, String>();
+		Future<String> job = null;
+		int nField = 0;
+		int nChar = 0;
+
+		for(nField = 1; nField < FIELDS.length; nField++)
+		{
+			nChar = FIELDS[nField].indexOf('=');
+			if(nChar < 0) return "error\tmalformed field \"" + FIELDS[nField] + "\".";
+
+			params.put(FIELDS[nField].substring(0, nChar).trim(), FIELDS[nField].substring(nChar + 1));
+		}
+
+		switch(FIELDS[0].trim().toLowerCase())
+		{
+			case "run":
+				break;
+
+			case "status":
+				return "ok\t{\"queued\": " + this.nQueued.get() + ", \"active\": " + this.nActive.get()
+					+ ", \"succeeded\": " + this.nSucceeded.get() + ", \"failed\": " + this.nFailed.get() + ", \"jobs\": " + this.nJobs + "}";
+
+			case "shutdown":
+				this.stop();
+				return "ok\t{}";
+
+			default:
+				return "error\tunknown request \"" + FIELDS[0] + "\".";
+		}
+
+		if(this.stopping) return "error\tdaemon is shutting down.";
+
+		this.nQueued.incrementAndGet();
+
+		try
+		{
+			job = this.workers.submit(() -> this.jobRun(params));
+		}
+		catch(RejectedExecutionException e)
+		{
+			/*Shut down between the check above and the submit.*/
+			this.nQueued.decrementAndGet();
+			return "error\tdaemon is shutting down.";
+		}
+
+		try
+		{
+			return job.get();
+		}
+		catch(Exception e)
+		{
+			return "error\tjob could not be run.";
+		}
+	}
+
+	/*
+	 * Runs one "run" request on a worker thread. Returns the response line.
+	 */
+
+	protected String jobRun(Map<String, String> params)
+	{
+		final String EFFECT = params.getOrDefault("effect", "").toLowerCase();
+		final String FILE_IN = params.getOrDefault("in", "");
+		final String FILE_OUT = params.getOrDefault("out", "");
+
+		AudioBaseClass audioobj = null;
+		String response = "";
+
+		this.nQueued.decrementAndGet();
+		this.nActive.incrementAndGet();
+
+		try
+		{
+			audioobj = AudioBatch.createEffect(EFFECT, FILE_IN, FILE_OUT);
+
+			if((audioobj == null) || FILE_IN.equals("") || FILE_OUT.equals("")) response = "error\tmissing or unknown effect, input or output.";
+			else response = this.jobRun(audioobj, params, this.resultCache);
+		}
+		catch(Exception e)
+		{
+			if(audioobj != null) audioobj.deinitialize();
+			response = "error\tunexpected error: " + e.toString().replace('\n', ' ').replace('\t', ' ');
+		}
+		finally
+		{
+			if(response.startsWith("ok")) this.nSucceeded.incrementAndGet();
+			else this.nFailed.incrementAndGet();
+
+			this.nActive.decrementAndGet();
+		}
+
+		return response;
+	}
+
+	/*
+	 * Runs a job exactly as a "run" request does; "cache" is the result cache to use, or null.
+	 */
+
+	protected String jobRun(AudioBaseClass audioobj, Map<String, String> params, AudioResultCache cache)
+	{
+		String json = "";
+		int level = 0;
+		int bufferSize = 0;
+		int bufferBytes = 0;
+
+		try
+		{
+			level = Integer.parseInt(params.getOrDefault("level", "0").trim());
+			bufferSize = Integer.parseInt(params.getOrDefault("buffer", "0").trim());
+		}
+		catch(Exception e)
+		{
+			return "error\tinvalid number in request.";
+		}
+
+		if(new File(audioobj.fileOutDir).getAbsoluteFile().getParentFile() != null) new File(audioobj.fileOutDir).getAbsoluteFile().getParentFile().mkdirs();
+
+		/*The worker pool already runs jobs in parallel: one thread per job.*/
+		audioobj.setInteractive(false);
+		audioobj.setParallelism(1);
+		audioobj.setResultCache(cache);
+
+		if(bufferSize > 0)
+		{
+			if(!audioobj.setBufferSize(bufferSize)) return "error\t" + audioobj.errMsg;
+		}
+		else
+		{
+			bufferBytes = AudioBufferTuner.profileLoad();
+			if(bufferBytes > 0) audioobj.setBufferSizeBytes(bufferBytes);
+		}
+
+		if(!audioobj.initialize()) return this.jobFail(audioobj);
+
+		if(audioobj instanceof AudioChain)
+			if(!((AudioChain) audioobj).setChain(params.getOrDefault("chain", "")))
+				return this.jobFail(audioobj);
+
+		if(audioobj instanceof AudioBitCrush)
+			if(!((AudioBitCrush) audioobj).setCutoff(level))
+				return this.jobFail(audioobj);
+
+		if(!audioobj.runDSP()) return this.jobFail(audioobj);
+
+		json = audioobj.metricsJson();
+		audioobj.deinitialize();
+
+		/*One line per response: the report's line breaks and indentation go.*/
+		return "ok\t" + json.replace("\n", "").replace("\t", "");
+	}
+
+	protected String jobFail(AudioBaseClass audioobj)
+	{
+		final String MESSAGE = audioobj.getLastErrorMessage();
+
+		audioobj.deinitialize();
+		return "error\t" + MESSAGE.replace("\n", " ").replace("\t", " ");
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Java Flight Recorder events: one "audiofx.Job" event per runDSP()/runStream() call, and "audiofx.Block" events
+ * for a random sample of the block reads, block transforms (decode, process, encode) and block writes.
+ *
+ * Off by default: nothing is created unless the JVM runs with -Daudiofx.jfr=true (AudioBaseClass.JFR_EVENTS
+ * is a constant, so the disabled calls are compiled away). Then, with a recording running:
+ * {
+ *	java -Daudiofx.jfr=true -XX:StartFlightRecording=filename=audiofx.jfr Main bitcrush --in-dir in --out-dir out
+ *	jfr print --events audiofx.Block audiofx.jfr
+ * }
+ * One block in -Daudiofx.jfr.sample=<n> (default 64) gets an event.
+ */
+
+public class AudioEvents
+{
+	protected static final int BLOCK_SAMPLE = Math.max(Integer.getInteger("audiofx.jfr.sample", 64), 1);
+
+	@Name("audiofx.Job")
+	@Label("Audio FX Job")
+	@Category("Audio FX")
+	@Description("One effect run over a file or stream, from runDSP()/runStream() to the end of the output.")
+	@StackTrace(false)
+	public static class Job extends Event
+	{
+		@Label("Effect")
+		public String effect;
+
+		@Label("Input")
+		public String input;
+
+		@Label("Format")
+		public String format;
+
+		@Label("Sample Rate")
+		public int sampleRate;
+
+		@Label("Channels")
+		public int channels;
+
+		@Label("Block Size (Frames)")
+		public int bufferSizeFrames;
+
+		@Label("Audio Data")
+		@DataAmount
+		public long bytes;
+
+		@Label("Succeeded")
+		public boolean succeeded;
+	}
+
+	@Name("audiofx.Block")
+	@Label("Audio FX Block")
+	@Category("Audio FX")
+	@Description("Sampled block operation, from its start to its end.")
+	@StackTrace(false)
+	public static class Block extends Event
+	{
+		@Label("Stage")
+		@Description("read, process (decode, effect kernel, encode) or write")
+		public String stage;
+
+		@Label("Size")
+		@DataAmount
+		public long bytes;
+	}
+
+	public static Job jobBegin()
+	{
+		Job event = new Job();
+
+		event.begin();
+		return event;
+	}
+
+	public static void jobEnd(Job event, AudioBaseClass job, boolean succeeded)
+	{
+		event.end();
+
+		if(!event.shouldCommit()) return;
+
+		event.effect = job.getClass().getSimpleName();
+		event.input = job.fileInDir;
+		event.format = job.format.name();
+		event.sampleRate = job.sampleRate;
+		event.channels = job.nChannels;
+		event.bufferSizeFrames = job.bufferSizeFrames;
+		event.bytes = job.metrics.getBytes(AudioMetrics.Stages.READ);
+		event.succeeded = succeeded;
+		event.commit();
+	}
+
+	/*
+	 * Begins a block event for one in BLOCK_SAMPLE calls, before the operation; returns null for the others.
+	 */
+
+	public static Block blockBegin(AudioMetrics.Stages stage)
+	{
+		Block event = null;
+
+		if(ThreadLocalRandom.current().nextInt(BLOCK_SAMPLE) != 0) return null;
+
+		event = new Block();
+		if(!event.isEnabled()) return null;
+
+		event.stage = stage.name().toLowerCase();
+		event.begin();
+		return event;
+	}
+
+	public static void blockEnd(Block event, long nBytes)
+	{
+		event.end();
+
+		if(!event.shouldCommit()) return;
+
+		event.bytes = nBytes;
+		event.commit();
+	}
+}
@@ -0,0 +1,378 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.io.File;
+import java.util.Random;
+
+/*
+ * Synthetic WAV file generator, for benchmarks and load tests.
+ *
+ * Output is fully determined by the settings and the seed: the noise comes from java.util.Random and the sine waves
+ * from StrictMath, so the same settings produce the same file on every machine.
+ *
+ * Odd cases: an extra "LIST" chunk between "fmt " and "data" (setListChunkSize()), and a data length that ends
+ * in a partial block (setPartialBlock()).
+ */
+
+public class AudioGenerator extends AudioBaseClass
+{
+	public static enum Signals {
+		SINE,
+		NOISE,
+		SILENCE,
+		MIXED
+	};
+
+	protected static final double DURATION_DEFAULT = 10.0;
+	protected static final int LIST_CHUNK_SIZE_CORPUS = 1024;
+
+	protected Signals signal = Signals.SINE;
+	protected long seed = 0L;
+	protected double duration = DURATION_DEFAULT;
+	protected int listChunkSize = 0;
+	protected boolean partialBlock = false;
+
+	protected long nFramesTotal = 0L;
+
+	private Random random = null;
+	private long nFrameCurrent = 0L;
+
+	public AudioGenerator(String fileOutDir)
+	{
+		super("", fileOutDir);
+	}
+
+	public boolean setFormat(int sampleRate, int bitDepth, int nChannels)
+	{
+		if(sampleRate < 1)
+		{
+			this.errMsg = "AudioGenerator.setFormat: Error: invalid sample rate.";
+			return false;
+		}
+
+		if(nChannels < 1)
+		{
+			this.errMsg = "AudioGenerator.setFormat: Error: invalid number of channels.";
+			return false;
+		}
+
+		switch(bitDepth)
+		{
+			case 16:
+				this.format = Formats.I16;
+				break;
+
+			case 24:
+				this.format = Formats.I24;
+				break;
+
+			default:
+				this.errMsg = "AudioGenerator.setFormat: Error: only 16-bit and 24-bit encoding are supported.";
+				return false;
+		}
+
+		this.sampleRate = sampleRate;
+		this.bitDepth = bitDepth;
+		this.nChannels = nChannels;
+
+		return true;
+	}
+
+	public boolean setDuration(double seconds)
+	{
+		if(!(seconds > 0.0))
+		{
+			this.errMsg = "AudioGenerator.setDuration: Error: duration must be greater than zero.";
+			return false;
+		}
+
+		this.duration = seconds;
+		return true;
+	}
+
+	public void setSignal(Signals signal)
+	{
+		this.signal = signal;
+	}
+
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+
+	/*
+	 * Size in bytes of the "LIST" chunk payload, 0 for no "LIST" chunk.
+	 */
+
+	public boolean setListChunkSize(int listChunkSize)
+	{
+		if(listChunkSize < 0)
+		{
+			this.errMsg = "AudioGenerator.setListChunkSize: Error: invalid chunk size.";
+			return false;
+		}
+
+		this.listChunkSize = listChunkSize;
+		return true;
+	}
+
+	public void setPartialBlock(boolean enable)
+	{
+		this.partialBlock = enable;
+	}
+
+	@Override
+	public boolean initialize()
+	{
+		if(this.status == Status.INITIALIZED) return true;
+
+		if(this.format == Formats.NULL)
+		{
+			this.errMsg = "AudioGenerator.initialize: Error: output format has not been set.";
+			return false;
+		}
+
+		this.nFramesTotal = Math.round(this.duration*((double) this.sampleRate));
+		this.bufferSizeInit();
+
+		/*Make the last block a partial one: whole blocks plus one third of a block.*/
+		if(this.partialBlock)
+			this.nFramesTotal = (this.nFramesTotal/((long) this.bufferSizeFrames))*((long) this.bufferSizeFrames) + ((long) (this.bufferSizeFrames/3));
+
+		this.status = Status.INITIALIZED;
+		return true;
+	}
+
+	@Override
+	public boolean runDSP()
+	{
+		final int FRAME_SIZE_BYTES = this.nChannels*this.bitDepth/8;
+		final long AUDIO_DATA_SIZE = this.nFramesTotal*((long) FRAME_SIZE_BYTES);
+
+		byte[] byteBuffer = new byte[this.bufferSizeBytes];
+		int[] buffer = new int[this.bufferSizeSamples];
+
+		long nFramesRemaining = 0L;
+		int nFrames = 0;
+
+		if(this.status != Status.INITIALIZED) return false;
+
+		if(!this.fileOutCreate())
+		{
+			this.errMsg = "AudioGenerator.runDSP: Error: failed to create output file.";
+			return false;
+		}
+
+		if(!this.fileOutWriteHeader(AUDIO_DATA_SIZE, this.listChunkCreate()))
+		{
+			this.fileOutClose();
+			return false;
+		}
+
+		this.random = new Random(this.seed);
+		this.nFrameCurrent = 0L;
+
+		nFramesRemaining = this.nFramesTotal;
+		while(nFramesRemaining > 0L)
+		{
+			nFrames = (int) Math.min((long) this.bufferSizeFrames, nFramesRemaining);
+
+			this.dspBlockProcess(buffer, nFrames);
+			this.dspBlockEncode(buffer, byteBuffer, (nFrames*this.nChannels));
+
+			try
+			{
+				this.fileOut.write(byteBuffer, 0, (nFrames*FRAME_SIZE_BYTES));
+			}
+			catch(Exception e)
+			{
+				this.fileOutClose();
+				this.errMsg = "AudioGenerator.runDSP: Error: RandomAccessFile.write failed.";
+				return false;
+			}
+
+			nFramesRemaining -= (long) nFrames;
+		}
+
+		this.fileOutClose();
+		return true;
+	}
+
+	/*
+	 * Generator kernel: ignores the buffer contents and fills it with the next nFrames frames of the signal.
+	 * Channel n carries a sine wave of 220*(n + 1) Hz.
+	 */
+
+	@Override
+	protected void dspBlockProcess(int[] buffer, int nFrames)
+	{
+		final double FULL_SCALE = (this.format == Formats.I16) ? 32767.0 : 8388607.0;
+
+		double time = 0.0;
+		double sine = 0.0;
+		double value = 0.0;
+
+		int nFrame = 0;
+		int nChannel = 0;
+		int nSample = 0;
+
+		nSample = 0;
+		for(nFrame = 0; nFrame < nFrames; nFrame++)
+		{
+			time = ((double) this.nFrameCurrent)/((double) this.sampleRate);
+
+			for(nChannel = 0; nChannel < this.nChannels; nChannel++)
+			{
+				if((this.signal == Signals.SINE) || (this.signal == Signals.MIXED))
+					sine = StrictMath.sin(2.0*StrictMath.PI*220.0*((double) (nChannel + 1))*time);
+
+				switch(this.signal)
+				{
+					case SINE:
+						value = 0.5*sine;
+						break;
+
+					case NOISE:
+						value = 0.5*(2.0*this.random.nextDouble() - 1.0);
+						break;
+
+					case MIXED:
+						value = 0.4*sine + 0.2*(2.0*this.random.nextDouble() - 1.0);
+						break;
+
+					default:
+						value = 0.0;
+						break;
+				}
+
+				buffer[nSample] = (int) Math.round(value*FULL_SCALE);
+				nSample++;
+			}
+
+			this.nFrameCurrent++;
+		}
+	}
+
+	protected byte[] listChunkCreate()
+	{
+		final byte[] TEXT = "JRE Audio FX Collection synthetic test file. ".getBytes();
+
+		byte[] chunk = null;
+		int payloadSize = 0;
+		int nByte = 0;
+
+		if(this.listChunkSize <= 0) return null;
+
+		/*"INFO" + "ICMT" sub-chunk header take 12 bytes; chunk payloads have even sizes.*/
+		payloadSize = Math.max(this.listChunkSize, 14);
+		payloadSize += (payloadSize%2);
+
+		chunk = new byte[8 + payloadSize];
+
+		chunk[0] = (byte) 'L';
+		chunk[1] = (byte) 'I';
+		chunk[2] = (byte) 'S';
+		chunk[3] = (byte) 'T';
+		NumUtils.n32ToBytesLE(payloadSize, chunk, 4);
+
+		chunk[8] = (byte) 'I';
+		chunk[9] = (byte) 'N';
+		chunk[10] = (byte) 'F';
+		chunk[11] = (byte) 'O';
+
+		chunk[12] = (byte) 'I';
+		chunk[13] = (byte) 'C';
+		chunk[14] = (byte) 'M';
+		chunk[15] = (byte) 'T';
+		NumUtils.n32ToBytesLE((payloadSize - 12), chunk, 16);
+
+		for(nByte = 20; nByte < (chunk.length - 1); nByte++) chunk[nByte] = TEXT[(nByte - 20)%TEXT.length];
+
+		return chunk;
+	}
+
+	/*
+	 * Writes a standard test corpus into outputDir: every signal type for 16-bit/24-bit and 1/2/6 channels,
+	 * plus files with a "LIST" chunk before "data" and files ending in a partial block.
+	 * Returns the number of files that failed.
+	 */
+
+	public static int corpusCreate(String outputDir, int sampleRate, double seconds, long seed)
+	{
+		final int[] BIT_DEPTHS = {16, 24};
+		final int[] CHANNELS = {1, 2, 6};
+
+		AudioGenerator generator = null;
+		String fileName = "";
+		long fileSeed = seed;
+		int nFailed = 0;
+
+		new File(outputDir).mkdirs();
+
+		for(int bitDepth : BIT_DEPTHS)
+		{
+			for(int nChannels : CHANNELS)
+			{
+				for(Signals signal : Signals.values())
+				{
+					fileName = signal.name().toLowerCase() + "_i" + bitDepth + "_" + nChannels + "ch.wav";
+					generator = corpusFileCreate(outputDir, fileName, sampleRate, bitDepth, nChannels, seconds, fileSeed);
+					if(!corpusFileRun(generator, fileName)) nFailed++;
+
+					fileSeed++;
+				}
+
+				fileName = "list_i" + bitDepth + "_" + nChannels + "ch.wav";
+				generator = corpusFileCreate(outputDir, fileName, sampleRate, bitDepth, nChannels, seconds, fileSeed);
+				generator.setListChunkSize(LIST_CHUNK_SIZE_CORPUS);
+				if(!corpusFileRun(generator, fileName)) nFailed++;
+
+				fileSeed++;
+
+				fileName = "partial_i" + bitDepth + "_" + nChannels + "ch.wav";
+				generator = corpusFileCreate(outputDir, fileName, sampleRate, bitDepth, nChannels, seconds, fileSeed);
+				generator.setPartialBlock(true);
+				if(!corpusFileRun(generator, fileName)) nFailed++;
+
+				fileSeed++;
+			}
+		}
+
+		return nFailed;
+	}
+
+	private static AudioGenerator corpusFileCreate(String outputDir, String fileName, int sampleRate, int bitDepth, int nChannels, double seconds, long seed)
+	{
+		AudioGenerator generator = new AudioGenerator(new File(outputDir, fileName).getPath());
+
+		generator.setFormat(sampleRate, bitDepth, nChannels);
+		generator.setDuration(seconds);
+		generator.setSignal(Signals.MIXED);
+		generator.setSeed(seed);
+
+		for(Signals signal : Signals.values())
+			if(fileName.startsWith(signal.name().toLowerCase()))
+				generator.setSignal(signal);
+
+		return generator;
+	}
+
+	private static boolean corpusFileRun(AudioGenerator generator, String fileName)
+	{
+		if(!generator.initialize() || !generator.runDSP())
+		{
+			System.out.println("FAILED: " + fileName + ": " + generator.getLastErrorMessage());
+			generator.deinitialize();
+			return false;
+		}
+
+		generator.deinitialize();
+		System.out.println("OK: " + fileName);
+		return true;
+	}
+}
@@ -0,0 +1,409 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/*
+ * Metadata index of a .wav library: format, sample rate, bit depth, channels and audio data size of every file,
+ * kept in a compact binary file (~/.audiofx_index, or -Daudiofx.index=<file>) and keyed by absolute path,
+ * modification time and size.
+ *
+ * update() only parses the headers of files that are new or changed since the last scan (with the same header parser
+ * as AudioBaseClass.initialize(), on nJobs threads); every other file costs one stat. Files whose header cannot be
+ * parsed are indexed too, with their error message, so they are not opened again either.
+ *
+ * Index file layout (big-endian, DataOutputStream):
+ * {
+ *	int magic ("AFXI"), int version, int number of entries
+ *	per entry: UTF path, long modified (ms), long size, UTF format (AudioBaseClass.Formats name, "NULL" if unreadable),
+ *	int sample rate, short bit depth, short channels, int channel mask, long data offset, long data size, UTF error
+ * }
+ */
+
+public class AudioMetadataIndex
+{
+	protected static final int INDEX_MAGIC = 0x41465849; /*"AFXI"*/
+	protected static final int INDEX_VERSION = 1;
+
+	public static class Entry
+	{
+		public final String path;
+		public final long modified;
+		public final long size;
+
+		public final String format;
+		public final int sampleRate;
+		public final int bitDepth;
+		public final int nChannels;
+		public final int channelMask;
+		public final long dataOffset;
+		public final long dataSize;
+
+		/*"" if the header was parsed.*/
+		public final String error;
+
+		public Entry(String path, long modified, long size, String format, int sampleRate, int bitDepth, int nChannels, int channelMask, long dataOffset, long dataSize, String error)
+		{
+			this.path = path;
+			this.modified = modified;
+			this.size = size;
+			this.format = format;
+			this.sampleRate = sampleRate;
+			this.bitDepth = bitDepth;
+			this.nChannels = nChannels;
+			this.channelMask = channelMask;
+			this.dataOffset = dataOffset;
+			this.dataSize = dataSize;
+			this.error = error;
+		}
+
+		public boolean isValid()
+		{
+			return this.error.equals("");
+		}
+
+		public long getFrames()
+		{
+			final long FRAME_SIZE_BYTES = (long) (this.nChannels*this.bitDepth/8);
+
+			if(!this.isValid() || (FRAME_SIZE_BYTES < 1L)) return 0L;
+
+			return this.dataSize/FRAME_SIZE_BYTES;
+		}
+
+		public double getSeconds()
+		{
+			if(!this.isValid() || (this.sampleRate < 1)) return 0.0;
+
+			return ((double) this.getFrames())/((double) this.sampleRate);
+		}
+	}
+
+	/*
+	 * Header parser only: initialize() reads the chunk headers and "fmt ", nothing else.
+	 */
+
+	protected static class HeaderReader extends AudioBaseClass
+	{
+		public HeaderReader(String fileInDir)
+		{
+			super(fileInDir, "");
+			this.setInteractive(false);
+		}
+
+		public Entry read(String path, long modified, long size)
+		{
+			Entry entry = null;
+
+			if(this.initialize()) entry = new Entry(path, modified, size, this.format.name(), this.sampleRate, this.bitDepth, this.nChannels,
+				this.channelMask, this.audioDataBegin, (this.audioDataEnd - this.audioDataBegin), "");
+			else entry = new Entry(path, modified, size, Formats.NULL.name(), 0, 0, 0, 0, 0L, 0L, this.getLastErrorMessage().replace('\n', ' '));
+
+			this.deinitialize();
+			return entry;
+		}
+
+		@Override
+		protected void dspBlockProcess(int[] buffer, int nFrames)
+		{
+		}
+	}
+
+	protected String indexDir = "";
+	protected int nJobs = 1;
+
+	protected Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	/*Counts of the last update().*/
+	protected AtomicInteger nParsed = new AtomicInteger(0);
+	protected AtomicInteger nUnchanged = new AtomicInteger(0);
+
+	protected String errMsg = "";
+
+	public AudioMetadataIndex(String indexDir)
+	{
+		this.indexDir = indexDir.equals("") ? indexDefault() : indexDir;
+	}
+
+	public static String indexDefault()
+	{
+		return System.getProperty("audiofx.index", new File(System.getProperty("user.home"), ".audiofx_index").getPath());
+	}
+
+	public boolean setJobs(int nJobs)
+	{
+		if(nJobs < 1)
+		{
+			this.errMsg = "AudioMetadataIndex.setJobs: Error: number of jobs must be at least 1.";
+			return false;
+		}
+
+		this.nJobs = nJobs;
+		return true;
+	}
+
+	public String getIndex()
+	{
+		return this.indexDir;
+	}
+
+	public int getParsedCount()
+	{
+		return this.nParsed.get();
+	}
+
+	public int getUnchangedCount()
+	{
+		return this.nUnchanged.get();
+	}
+
+	public String getLastErrorMessage()
+	{
+		return this.errMsg;
+	}
+
+	/*
+	 * Entry for a file (any path form), or null if the file is not in the index.
+	 * The entry may be stale: update() checks the modification time and size.
+	 */
+
+	public Entry get(Path file)
+	{
+		return this.entries.get(file.toAbsolutePath().normalize().toString());
+	}
+
+	public Collection<Entry> getEntries()
+	{
+		return this.entries.values();
+	}
+
+	/*
+	 * Loads the index file. A missing file is an empty index; an unreadable or outdated one is dropped (it is rebuilt
+	 * by the next update()).
+	 */
+
+	public boolean load()
+	{
+		Entry entry = null;
+		int nEntries = 0;
+		int nEntry = 0;
+
+		this.entries.clear();
+
+		if(!new File(this.indexDir).isFile()) return true;
+
+		try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(this.indexDir))))
+		{
+			if((input.readInt() != INDEX_MAGIC) || (input.readInt() != INDEX_VERSION)) return true;
+
+			nEntries = input.readInt();
+
+			for(nEntry = 0; nEntry < nEntries; nEntry++)
+			{
+				entry = new Entry(input.readUTF(), input.readLong(), input.readLong(), input.readUTF(), input.readInt(), input.readUnsignedShort(), input.readUnsignedShort(),
+					input.readInt(), input.readLong(), input.readLong(), input.readUTF());
+
+				this.entries.put(entry.path, entry);
+			}
+		}
+		catch(Exception e)
+		{
+			this.entries.clear();
+			this.errMsg = "AudioMetadataIndex.load: Error: index file is damaged, it will be rebuilt.";
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Writes the index file (to a temporary file first, so a crash never leaves a truncated index).
+	 */
+
+	public boolean save()
+	{
+		final File INDEX_FILE = new File(this.indexDir).getAbsoluteFile();
+		final File INDEX_TEMP = new File(INDEX_FILE.getPath() + ".tmp");
+		final List<Entry> ENTRIES = new ArrayList<Entry>(this.entries.values());
+
+		if(INDEX_FILE.getParentFile() != null) INDEX_FILE.getParentFile().mkdirs();
+
+		try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(INDEX_TEMP))))
+		{
+			output.writeInt(INDEX_MAGIC);
+			output.writeInt(INDEX_VERSION);
+			output.writeInt(ENTRIES.size());
+
+			for(Entry entry : ENTRIES)
+			{
+				output.writeUTF(entry.path);
+				output.writeLong(entry.modified);
+				output.writeLong(entry.size);
+				output.writeUTF(entry.format);
+				output.writeInt(entry.sampleRate);
+				output.writeShort(entry.bitDepth);
+				output.writeShort(entry.nChannels);
+				output.writeInt(entry.channelMask);
+				output.writeLong(entry.dataOffset);
+				output.writeLong(entry.dataSize);
+				output.writeUTF(entry.error);
+			}
+		}
+		catch(Exception e)
+		{
+			INDEX_TEMP.delete();
+			this.errMsg = "AudioMetadataIndex.save: Error: failed to write index file.";
+			return false;
+		}
+
+		try
+		{
+			Files.move(INDEX_TEMP.toPath(), INDEX_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(Exception e)
+		{
+			INDEX_TEMP.delete();
+			this.errMsg = "AudioMetadataIndex.save: Error: failed to write index file.";
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Indexes every .wav file of a directory tree, and drops the entries of files under it that no longer exist.
+	 */
+
+	public boolean scan(String rootDir)
+	{
+		final Path ROOT = Paths.get(rootDir).toAbsolutePath().normalize();
+
+		List<Path> files = new ArrayList<Path>();
+		Set<String> paths = new HashSet<String>();
+
+		if(!Files.isDirectory(ROOT))
+		{
+			this.errMsg = "AudioMetadataIndex.scan: Error: directory does not exist, or cannot be accessed.";
+			return false;
+		}
+
+		try(Stream<Path> tree = Files.walk(ROOT))
+		{
+			tree.filter(Files::isRegularFile)
+				.filter(file -> file.getFileName().toString().toLowerCase().endsWith(".wav"))
+				.forEach(files::add);
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioMetadataIndex.scan: Error: failed to walk directory.";
+			return false;
+		}
+
+		if(!this.update(files)) return false;
+
+		for(Path file : files) paths.add(file.toString());
+
+		/*Deleted files: under ROOT (as a path, not as a string prefix), but not found by this walk.*/
+		for(String path : this.entries.keySet())
+			if(!paths.contains(path) && Paths.get(path).startsWith(ROOT))
+				this.entries.remove(path);
+
+		return true;
+	}
+
+	/*
+	 * Brings the entries of the given files up to date: new or changed files (modification time or size) are parsed,
+	 * on nJobs threads.
+	 */
+
+	public boolean update(List<Path> files)
+	{
+		ExecutorService workers = Executors.newFixedThreadPool(this.nJobs);
+
+		this.nParsed.set(0);
+		this.nUnchanged.set(0);
+
+		for(Path file : files)
+		{
+			final Path FILE = file.toAbsolutePath().normalize();
+			workers.execute(() -> this.updateFile(FILE));
+		}
+
+		workers.shutdown();
+
+		try
+		{
+			while(!workers.awaitTermination(1L, TimeUnit.SECONDS));
+		}
+		catch(InterruptedException e)
+		{
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+			this.errMsg = "AudioMetadataIndex.update: Error: interrupted while scanning.";
+			return false;
+		}
+
+		return true;
+	}
+
+	protected void updateFile(Path file)
+	{
+		final String PATH = file.toString();
+
+		BasicFileAttributes attributes = null;
+		Entry entry = null;
+		long modified = 0L;
+
+		try
+		{
+			attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		}
+		catch(Exception e)
+		{
+			/*Gone since the walk.*/
+			this.entries.remove(PATH);
+			return;
+		}
+
+		modified = attributes.lastModifiedTime().toMillis();
+
+		entry = this.entries.get(PATH);
+
+		if((entry != null) && (entry.modified == modified) && (entry.size == attributes.size()))
+		{
+			this.nUnchanged.incrementAndGet();
+			return;
+		}
+
+		this.entries.put(PATH, new HeaderReader(PATH).read(PATH, modified, attributes.size()));
+		this.nParsed.incrementAndGet();
+	}
+}
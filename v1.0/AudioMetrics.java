@@ -0,0 +1,218 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Timings and byte counts of one DSP job, stage by stage (see AudioBaseClass.getMetrics()).
+ *
+ * Stages may run on several threads at once (pipelined and parallel runs): stage times are summed over all threads,
+ * so they can add up to more than the wall time. Comparing the I/O stages (read, write, copy) with the DSP stages
+ * (decode, process, encode) tells whether a job is disk-bound or CPU-bound. The cache stage (result cache key hash,
+ * lookup and store) is counted in neither.
+ */
+
+public class AudioMetrics
+{
+	public static enum Stages {
+		HEADER,
+		READ,
+		DECODE,
+		PROCESS,
+		ENCODE,
+		WRITE,
+		COPY,
+		CACHE
+	};
+
+	private final LongAdder[] stageNanos = new LongAdder[Stages.values().length];
+	private final LongAdder[] stageBytes = new LongAdder[Stages.values().length];
+	private final LongAdder[] stageCount = new LongAdder[Stages.values().length];
+	private final LongAdder nFrames = new LongAdder();
+
+	private volatile long timeBegin = 0L;
+	private volatile long timeEnd = 0L;
+
+	public AudioMetrics()
+	{
+		int nStage = 0;
+
+		for(nStage = 0; nStage < this.stageNanos.length; nStage++)
+		{
+			this.stageNanos[nStage] = new LongAdder();
+			this.stageBytes[nStage] = new LongAdder();
+			this.stageCount[nStage] = new LongAdder();
+		}
+	}
+
+	public void reset()
+	{
+		int nStage = 0;
+
+		for(nStage = 0; nStage < this.stageNanos.length; nStage++)
+		{
+			this.stageNanos[nStage].reset();
+			this.stageBytes[nStage].reset();
+			this.stageCount[nStage].reset();
+		}
+
+		this.nFrames.reset();
+		this.timeBegin = 0L;
+		this.timeEnd = 0L;
+	}
+
+	public void add(Stages stage, long nanos, long nBytes)
+	{
+		this.stageNanos[stage.ordinal()].add(nanos);
+		this.stageBytes[stage.ordinal()].add(nBytes);
+		this.stageCount[stage.ordinal()].increment();
+	}
+
+	public void addFrames(long nFrames)
+	{
+		this.nFrames.add(nFrames);
+	}
+
+	public void jobBegin()
+	{
+		this.timeBegin = System.nanoTime();
+		this.timeEnd = 0L;
+	}
+
+	public void jobEnd()
+	{
+		this.timeEnd = System.nanoTime();
+	}
+
+	public long getNanos(Stages stage)
+	{
+		return this.stageNanos[stage.ordinal()].sum();
+	}
+
+	public long getBytes(Stages stage)
+	{
+		return this.stageBytes[stage.ordinal()].sum();
+	}
+
+	public long getCount(Stages stage)
+	{
+		return this.stageCount[stage.ordinal()].sum();
+	}
+
+	public long getFrames()
+	{
+		return this.nFrames.sum();
+	}
+
+	/*
+	 * Time from the start of the job to its end (or to now, while it runs).
+	 */
+
+	public long getWallNanos()
+	{
+		if(this.timeBegin == 0L) return 0L;
+		if(this.timeEnd == 0L) return (System.nanoTime() - this.timeBegin);
+
+		return (this.timeEnd - this.timeBegin);
+	}
+
+	public long getIoNanos()
+	{
+		return (this.getNanos(Stages.READ) + this.getNanos(Stages.WRITE) + this.getNanos(Stages.COPY));
+	}
+
+	public long getDspNanos()
+	{
+		return (this.getNanos(Stages.DECODE) + this.getNanos(Stages.PROCESS) + this.getNanos(Stages.ENCODE));
+	}
+
+	/*
+	 * Audio data bytes per second of wall time, in MiB/s.
+	 */
+
+	public double getThroughput()
+	{
+		final long WALL_NANOS = this.getWallNanos();
+
+		if(WALL_NANOS <= 0L) return 0.0;
+
+		return (((double) this.getBytes(Stages.READ))/1048576.0)/(((double) WALL_NANOS)/1.0e9);
+	}
+
+	/*
+	 * One line summary, for console output.
+	 */
+
+	@Override
+	public String toString()
+	{
+		return String.format("%.1f ms, %.1f MiB/s (read %.1f ms, decode %.1f ms, process %.1f ms, encode %.1f ms, write %.1f ms, copy %.1f ms, cache %.1f ms)",
+			millis(this.getWallNanos()), this.getThroughput(),
+			millis(this.getNanos(Stages.READ)), millis(this.getNanos(Stages.DECODE)), millis(this.getNanos(Stages.PROCESS)),
+			millis(this.getNanos(Stages.ENCODE)), millis(this.getNanos(Stages.WRITE)), millis(this.getNanos(Stages.COPY)),
+			millis(this.getNanos(Stages.CACHE)));
+	}
+
+	/*
+	 * JSON object with the job description given by "job" (name/value pairs, values already in JSON form)
+	 * followed by the metrics.
+	 */
+
+	public String toJson(String[][] job)
+	{
+		StringBuilder json = new StringBuilder();
+
+		json.append("{\n");
+
+		for(String[] field : job) json.append("\t\"").append(field[0]).append("\": ").append(field[1]).append(",\n");
+
+		json.append("\t\"wallNanos\": ").append(this.getWallNanos()).append(",\n");
+		json.append("\t\"frames\": ").append(this.getFrames()).append(",\n");
+		json.append("\t\"ioNanos\": ").append(this.getIoNanos()).append(",\n");
+		json.append("\t\"dspNanos\": ").append(this.getDspNanos()).append(",\n");
+		json.append("\t\"throughputMiBps\": ").append(String.format("%.3f", this.getThroughput())).append(",\n");
+		json.append("\t\"stages\": {\n");
+
+		for(Stages stage : Stages.values())
+		{
+			json.append("\t\t\"").append(stage.name().toLowerCase()).append("\": {");
+			json.append("\"nanos\": ").append(this.getNanos(stage)).append(", ");
+			json.append("\"bytes\": ").append(this.getBytes(stage)).append(", ");
+			json.append("\"count\": ").append(this.getCount(stage)).append("}");
+			json.append((stage.ordinal() < (Stages.values().length - 1)) ? ",\n" : "\n");
+		}
+
+		json.append("\t}\n");
+		json.append("}\n");
+
+		return json.toString();
+	}
+
+	public static String jsonString(String value)
+	{
+		StringBuilder json = new StringBuilder("\"");
+		char c = 0;
+		int nChar = 0;
+
+		for(nChar = 0; nChar < value.length(); nChar++)
+		{
+			c = value.charAt(nChar);
+
+			if((c == '"') || (c == '\\')) json.append('\\').append(c);
+			else if(c < 0x20) json.append(String.format("\\u%04x", (int) c));
+			else json.append(c);
+		}
+
+		return json.append('"').toString();
+	}
+
+	private static double millis(long nanos)
+	{
+		return ((double) nanos)/1.0e6;
+	}
+}
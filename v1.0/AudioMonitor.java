@@ -0,0 +1,308 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+/*
+ * JMX monitoring: every running job (runDSP()/runStream()) is registered as "audiofx:type=Job,id=<n>" and every running
+ * batch as "audiofx:type=Batch,id=<n>", on the platform MBean server. Jobs are unregistered when they end.
+ *
+ * Starting the platform MBean server costs a short job more than the job itself, so registration is off by default and
+ * on in the resident modes only (batch and daemon, see enableForMode()). -Daudiofx.jmx=true turns it on for every
+ * mode, -Daudiofx.jmx=false turns it off for every mode.
+ */
+
+public class AudioMonitor
+{
+	/*"true", "false", or "" if not set.*/
+	protected static final String JMX_PROPERTY = System.getProperty("audiofx.jmx", "");
+
+	private static volatile boolean jmxEnabled = JMX_PROPERTY.equals("true");
+
+	/*The current throughput is measured between queries at least this far apart.*/
+	protected static final long RATE_INTERVAL_NANOS = 1000000000L;
+
+	private static final AtomicLong nextId = new AtomicLong(1L);
+
+	public interface JobMXBean
+	{
+		public String getEffect();
+		public String getInput();
+		public String getOutput();
+
+		/*Audio data size in bytes, -1 if unknown (stream without data size).*/
+		public long getBytesTotal();
+		public long getBytesProcessed();
+
+		/*0.0 to 100.0, -1.0 if the size is unknown.*/
+		public double getPercentComplete();
+
+		/*MiB/s since the job started, and over the last query interval.*/
+		public double getAverageThroughput();
+		public double getCurrentThroughput();
+
+		/*Seconds, -1 if unknown.*/
+		public long getEtaSeconds();
+		public long getElapsedSeconds();
+
+		/*Operation: stops the job at the next block boundary and deletes its partial output.*/
+		public void cancel();
+	}
+
+	public interface BatchMXBean
+	{
+		public String getEffect();
+		public String getInputDirectory();
+		public String getOutputDirectory();
+
+		public int getTotalCount();
+		public int getQueuedCount();
+		public int getActiveCount();
+		public int getCompletedCount();
+		public int getSucceededCount();
+		public int getFailedCount();
+
+		public double getPercentComplete();
+
+		/*Operation: cancels the running files and skips the queued ones.*/
+		public void cancel();
+	}
+
+	public static class Job implements JobMXBean
+	{
+		private final AudioBaseClass job;
+
+		private long sampleTime = 0L;
+		private long sampleBytes = 0L;
+		private double currentThroughput = 0.0;
+
+		public Job(AudioBaseClass job)
+		{
+			this.job = job;
+		}
+
+		@Override
+		public String getEffect()
+		{
+			return this.job.getClass().getSimpleName();
+		}
+
+		@Override
+		public String getInput()
+		{
+			return this.job.fileInDir;
+		}
+
+		@Override
+		public String getOutput()
+		{
+			return this.job.fileOutDir;
+		}
+
+		@Override
+		public long getBytesTotal()
+		{
+			return this.job.getBytesTotal();
+		}
+
+		@Override
+		public long getBytesProcessed()
+		{
+			return this.job.getBytesProcessed();
+		}
+
+		@Override
+		public double getPercentComplete()
+		{
+			final long BYTES_TOTAL = this.getBytesTotal();
+
+			if(BYTES_TOTAL < 0L) return -1.0;
+			if(BYTES_TOTAL == 0L) return 100.0;
+
+			return 100.0*((double) this.getBytesProcessed())/((double) BYTES_TOTAL);
+		}
+
+		@Override
+		public double getAverageThroughput()
+		{
+			final long WALL_NANOS = this.job.metrics.getWallNanos();
+
+			if(WALL_NANOS <= 0L) return 0.0;
+
+			return (((double) this.getBytesProcessed())/1048576.0)/(((double) WALL_NANOS)/1.0e9);
+		}
+
+		@Override
+		public synchronized double getCurrentThroughput()
+		{
+			final long TIME = System.nanoTime();
+			final long BYTES = this.getBytesProcessed();
+
+			if(this.sampleTime == 0L) this.currentThroughput = this.getAverageThroughput();
+			else if((TIME - this.sampleTime) < RATE_INTERVAL_NANOS) return this.currentThroughput;
+			else this.currentThroughput = (((double) (BYTES - this.sampleBytes))/1048576.0)/(((double) (TIME - this.sampleTime))/1.0e9);
+
+			this.sampleTime = TIME;
+			this.sampleBytes = BYTES;
+
+			return this.currentThroughput;
+		}
+
+		@Override
+		public long getEtaSeconds()
+		{
+			final long BYTES_TOTAL = this.getBytesTotal();
+			double throughput = this.getCurrentThroughput();
+
+			if(!(throughput > 0.0)) throughput = this.getAverageThroughput();
+			if((BYTES_TOTAL < 0L) || !(throughput > 0.0)) return -1L;
+
+			return (long) Math.ceil((((double) (BYTES_TOTAL - this.getBytesProcessed()))/1048576.0)/throughput);
+		}
+
+		@Override
+		public long getElapsedSeconds()
+		{
+			return (this.job.metrics.getWallNanos()/1000000000L);
+		}
+
+		@Override
+		public void cancel()
+		{
+			this.job.cancel();
+		}
+	}
+
+	public static class Batch implements BatchMXBean
+	{
+		private final AudioBatch batch;
+
+		public Batch(AudioBatch batch)
+		{
+			this.batch = batch;
+		}
+
+		@Override
+		public String getEffect()
+		{
+			return this.batch.effect;
+		}
+
+		@Override
+		public String getInputDirectory()
+		{
+			return this.batch.inputDir;
+		}
+
+		@Override
+		public String getOutputDirectory()
+		{
+			return this.batch.outputDir;
+		}
+
+		@Override
+		public int getTotalCount()
+		{
+			return this.batch.nTotal;
+		}
+
+		@Override
+		public int getQueuedCount()
+		{
+			return Math.max((this.getTotalCount() - this.getActiveCount() - this.getCompletedCount()), 0);
+		}
+
+		@Override
+		public int getActiveCount()
+		{
+			return this.batch.nActive.get();
+		}
+
+		@Override
+		public int getCompletedCount()
+		{
+			return (this.getSucceededCount() + this.getFailedCount());
+		}
+
+		@Override
+		public int getSucceededCount()
+		{
+			return this.batch.getSucceededCount();
+		}
+
+		@Override
+		public int getFailedCount()
+		{
+			return this.batch.getFailedCount();
+		}
+
+		@Override
+		public double getPercentComplete()
+		{
+			if(this.getTotalCount() == 0) return 0.0;
+
+			return 100.0*((double) this.getCompletedCount())/((double) this.getTotalCount());
+		}
+
+		@Override
+		public void cancel()
+		{
+			this.batch.cancel();
+		}
+	}
+
+	/*
+	 * Registers "mbean" as "audiofx:type=<type>,id=<n>". Returns its name, or null if JMX is off or registration failed
+	 * (monitoring never makes a job fail).
+	 */
+
+	/*
+	 * Batch and daemon modes: turns registration on, unless -Daudiofx.jmx=false.
+	 */
+
+	public static void enableForMode()
+	{
+		if(JMX_PROPERTY.equals("")) jmxEnabled = true;
+	}
+
+	public static ObjectName register(String type, Object mbean)
+	{
+		ObjectName name = null;
+
+		if(!jmxEnabled) return null;
+
+		try
+		{
+			name = new ObjectName("audiofx:type=" + type + ",id=" + nextId.getAndIncrement());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+		}
+		catch(Exception e)
+		{
+			return null;
+		}
+
+		return name;
+	}
+
+	public static void unregister(ObjectName name)
+	{
+		if(name == null) return;
+
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+		catch(Exception e)
+		{
+			/*IGNORE*/
+		}
+	}
+}
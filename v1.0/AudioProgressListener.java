@@ -0,0 +1,25 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+/*
+ * Progress callback for runDSP()/runStream() (see AudioBaseClass.setProgressListener()).
+ *
+ * Called from the effect loops, at most every AudioBaseClass.PROGRESS_INTERVAL_NANOS, and once more when the job
+ * has finished. Parallel runs call it from worker threads (never from two threads at the same time).
+ * Must return quickly: the block loop waits for it.
+ */
+
+public interface AudioProgressListener
+{
+	/*
+	 * bytesTotal is -1 for a stream of unknown length.
+	 * Returning false cancels the job, the same as AudioBaseClass.cancel().
+	 */
+
+	public boolean progress(AudioBaseClass job, long bytesProcessed, long bytesTotal);
+}
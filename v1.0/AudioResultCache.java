@@ -0,0 +1,404 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Content-addressed result cache (see AudioBaseClass.setResultCache()): output files stored under the SHA-256 of
+ * everything the output depends on:
+ * {
+ *	effect class and parameters (AudioBaseClass.dspParams())
+ *	output header for the input's format and data size (sample format, rate, channels, channel mask)
+ *	input audio data
+ * }
+ * Other input chunks (LIST, etc.) are not copied to the output, so they are not part of the key either.
+ *
+ * Entries are "<key>.wav" files in cacheDir, made read-only. A store always copies the output into the cache
+ * (FileChannel.transferTo()), so the cache owns its entries and the user's output is left as it was. A hit copies the
+ * entry to the output file, or, only if hard links are enabled (setHardLinks()), hard-links it: a linked output is the
+ * entry itself, read-only, and must be replaced, never modified in place.
+ *
+ * Eviction: least recently used first, once the entries add up to more than sizeMax bytes. The last use of an entry is
+ * the modification time of an empty "<key>.used" file next to it (updated on every hit), so neither the entries nor
+ * the outputs linked to them are ever touched. Thread-safe, and several processes can share one directory.
+ */
+
+public class AudioResultCache
+{
+	public static final long SIZE_MAX_DEFAULT = 0x100000000L; /*4 GiB*/
+
+	/*Part of every key: change it when an effect's output changes, so older entries stop matching.*/
+	protected static final String KEY_VERSION = "audiofx-1.0";
+
+	protected static final String ENTRY_SUFFIX = ".wav";
+	protected static final String USED_SUFFIX = ".used";
+	protected static final int HASH_BUFFER_SIZE = 0x100000; /*1 MiB*/
+
+	protected String cacheDir = "";
+	protected long sizeMax = SIZE_MAX_DEFAULT;
+	protected boolean hardLinks = false;
+
+	protected String errMsg = "";
+
+	public AudioResultCache(String cacheDir)
+	{
+		this.cacheDir = cacheDir;
+	}
+
+	public AudioResultCache(String cacheDir, long sizeMax)
+	{
+		this(cacheDir);
+		this.sizeMax = sizeMax;
+	}
+
+	/*
+	 * Creates the cache directory if needed.
+	 */
+
+	public boolean initialize()
+	{
+		final File CACHE_DIR = new File(this.cacheDir);
+
+		if(this.sizeMax <= 0L)
+		{
+			this.errMsg = "AudioResultCache.initialize: Error: cache size must be above 0.";
+			return false;
+		}
+
+		CACHE_DIR.mkdirs();
+
+		if(!CACHE_DIR.isDirectory() || !CACHE_DIR.canWrite())
+		{
+			this.errMsg = "AudioResultCache.initialize: Error: cache directory \"" + this.cacheDir + "\" cannot be created, or is not writable.";
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * true: hits hard-link the entry to the output file instead of copying it (no copy, but the output is read-only and
+	 * shared with the cache). Off by default.
+	 */
+
+	public void setHardLinks(boolean enable)
+	{
+		this.hardLinks = enable;
+	}
+
+	public boolean getHardLinks()
+	{
+		return this.hardLinks;
+	}
+
+	public String getDirectory()
+	{
+		return this.cacheDir;
+	}
+
+	public long getSizeMax()
+	{
+		return this.sizeMax;
+	}
+
+	public String getLastErrorMessage()
+	{
+		return this.errMsg;
+	}
+
+	/*
+	 * Key of an initialized job, as a hex string. Reads the whole input audio data.
+	 * Returns null if the input could not be read, or if the job was cancelled meanwhile.
+	 */
+
+	public String key(AudioBaseClass job)
+	{
+		final long DATA_SIZE = job.audioDataEnd - job.audioDataBegin;
+
+		MessageDigest digest = null;
+		ByteBuffer buffer = null;
+		long position = 0L;
+		int nBytes = 0;
+
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioResultCache.key: Error: SHA-256 is not available.";
+			return null;
+		}
+
+		digest.update((KEY_VERSION + "\n" + job.getClass().getSimpleName() + "\n" + job.dspParams() + "\n").getBytes(StandardCharsets.UTF_8));
+		digest.update(job.headerCreate(DATA_SIZE, null, false));
+
+		buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+
+		try(FileChannel channel = FileChannel.open(Path.of(job.fileInDir), StandardOpenOption.READ))
+		{
+			position = job.audioDataBegin;
+
+			while(position < job.audioDataEnd)
+			{
+				if(job.isCancelled()) return null;
+
+				buffer.clear();
+				buffer.limit((int) Math.min((long) HASH_BUFFER_SIZE, (job.audioDataEnd - position)));
+
+				nBytes = channel.read(buffer, position);
+				if(nBytes <= 0) break;
+
+				buffer.flip();
+				digest.update(buffer);
+
+				position += (long) nBytes;
+			}
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioResultCache.key: Error: failed to read input file.";
+			return null;
+		}
+
+		if(position < job.audioDataEnd)
+		{
+			this.errMsg = "AudioResultCache.key: Error: input file is shorter than its header says.";
+			return null;
+		}
+
+		return hex(digest.digest());
+	}
+
+	/*
+	 * Cache hit: replaces fileOutDir with the entry for "key" and returns true. Returns false on a miss.
+	 */
+
+	public boolean fetch(String key, String fileOutDir)
+	{
+		final File ENTRY = this.entryFile(key);
+
+		if(!ENTRY.isFile()) return false;
+
+		if(!FileManager.fileDelete(fileOutDir)) return false;
+
+		if(!(this.hardLinks && this.fileLink(ENTRY.toPath(), Path.of(fileOutDir))) && !this.fileCopy(ENTRY.toPath(), Path.of(fileOutDir)))
+		{
+			/*Evicted meanwhile, or unreadable: a miss.*/
+			FileManager.fileDelete(fileOutDir);
+			return false;
+		}
+
+		this.entryUsed(key);
+		return true;
+	}
+
+	/*
+	 * Adds a copy of fileOutDir as the entry for "key", then evicts old entries if the cache is over its size.
+	 * A file larger than the whole cache is not stored.
+	 */
+
+	public boolean store(String key, String fileOutDir)
+	{
+		final File ENTRY = this.entryFile(key);
+		final long FILE_SIZE = FileManager.fileGetSize(fileOutDir);
+
+		Path entryTemp = null;
+
+		if(ENTRY.isFile()) return true;
+
+		if((FILE_SIZE < 0L) || (FILE_SIZE > this.sizeMax)) return false;
+
+		try
+		{
+			entryTemp = Files.createTempFile(Path.of(this.cacheDir), "audiofx_", ".tmp");
+			Files.delete(entryTemp);
+		}
+		catch(Exception e)
+		{
+			this.errMsg = "AudioResultCache.store: Error: failed to create cache entry.";
+			return false;
+		}
+
+		if(!this.fileCopy(Path.of(fileOutDir), entryTemp))
+		{
+			FileManager.fileDelete(entryTemp.toString());
+			this.errMsg = "AudioResultCache.store: Error: failed to create cache entry.";
+			return false;
+		}
+
+		entryTemp.toFile().setReadOnly();
+
+		try
+		{
+			/*Renamed in one step: other threads and processes never see a partial entry.*/
+			Files.move(entryTemp, ENTRY.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(Exception e)
+		{
+			FileManager.fileDelete(entryTemp.toString());
+			this.errMsg = "AudioResultCache.store: Error: failed to create cache entry.";
+			return false;
+		}
+
+		this.entryUsed(key);
+		this.evict();
+		return true;
+	}
+
+	/*
+	 * Deletes least recently used entries until the cache fits sizeMax.
+	 */
+
+	public synchronized void evict()
+	{
+		List<File> entries = new ArrayList<File>();
+		File[] files = null;
+		File entry = null;
+		long cacheSize = 0L;
+		int nEntry = 0;
+
+		files = new File(this.cacheDir).listFiles();
+		if(files == null) return;
+
+		for(File file : files)
+		{
+			if(!file.isFile() || !file.getName().endsWith(ENTRY_SUFFIX)) continue;
+
+			entries.add(file);
+			cacheSize += file.length();
+		}
+
+		if(cacheSize <= this.sizeMax) return;
+
+		entries.sort(Comparator.comparingLong(this::entryLastUsed));
+
+		for(nEntry = 0; (nEntry < entries.size()) && (cacheSize > this.sizeMax); nEntry++)
+		{
+			entry = entries.get(nEntry);
+			cacheSize -= entry.length();
+
+			entry.delete();
+			this.usedFile(entry).delete();
+		}
+	}
+
+	protected File entryFile(String key)
+	{
+		return new File(this.cacheDir, key + ENTRY_SUFFIX);
+	}
+
+	protected File usedFile(File entry)
+	{
+		final String NAME = entry.getName();
+
+		return new File(entry.getParentFile(), NAME.substring(0, (NAME.length() - ENTRY_SUFFIX.length())) + USED_SUFFIX);
+	}
+
+	/*
+	 * Marks the entry for "key" as used now.
+	 */
+
+	protected void entryUsed(String key)
+	{
+		final File USED = new File(this.cacheDir, key + USED_SUFFIX);
+
+		try
+		{
+			USED.createNewFile();
+		}
+		catch(Exception e)
+		{
+			return;
+		}
+
+		USED.setLastModified(System.currentTimeMillis());
+	}
+
+	/*
+	 * Last use of an entry: its "used" file's modification time, or the entry's own if there is none.
+	 */
+
+	protected long entryLastUsed(File entry)
+	{
+		final File USED = this.usedFile(entry);
+
+		if(USED.isFile()) return USED.lastModified();
+
+		return entry.lastModified();
+	}
+
+	/*
+	 * Makes "target" a hard link to "source". Returns false if that is not possible (e.g. different file systems).
+	 */
+
+	protected boolean fileLink(Path source, Path target)
+	{
+		try
+		{
+			Files.createLink(target, source);
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Copies "source" to a new file "target".
+	 */
+
+	protected boolean fileCopy(Path source, Path target)
+	{
+		long position = 0L;
+		long size = 0L;
+		long transferred = 0L;
+
+		try(FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+			FileChannel output = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW))
+		{
+			size = input.size();
+
+			while(position < size)
+			{
+				transferred = input.transferTo(position, (size - position), output);
+				if(transferred <= 0L) break;
+
+				position += transferred;
+			}
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+
+		return (position == size);
+	}
+
+	protected static String hex(byte[] bytes)
+	{
+		StringBuilder str = new StringBuilder();
+
+		for(byte b : bytes) str.append(String.format("%02x", (b & 0xff)));
+
+		return str.toString();
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+/*
+ * Vectorized versions of the effect kernels.
+ * Implemented by vector/AudioVectorKernels.java (jdk.incubator.vector), which is compiled separately and loaded at startup
+ * only if available (see AudioBaseClass.SIMD_KERNELS). Results must be identical to the scalar kernels.
+ */
+
+public interface AudioSimdKernels
+{
+	/*
+	 * buffer[n] &= ~cutoff, for the first nSamples samples.
+	 */
+
+	public void bitCrush(int[] buffer, int nSamples, int cutoff);
+
+	/*
+	 * Channel subtract kernel (see AudioChannelSubtract), clamping the results to [sampleMin, sampleMax].
+	 * Returns false, with buffer untouched, for channel counts it has no faster version for: the caller runs the scalar kernel.
+	 */
+
+	public boolean channelSubtract(int[] buffer, int nFrames, int nChannels, int sampleMax, int sampleMin);
+}
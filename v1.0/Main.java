@@ -6,6 +6,13 @@
  * Email: rafaelmsabe@gmail.com
  */
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Scanner;
 
 public class Main
@@ -24,7 +31,24 @@ public class Main
 
 		userCmd = args[0].toLowerCase();
 
-		if(userCmd.equals("bitcrush")) proc_bitcrush();
+		if(userCmd.equals("client")) proc_client(args);
+		else if(userCmd.equals("daemon")) proc_daemon(args);
+		else if(Arrays.asList(args).contains("--pipe")) proc_pipe(args);
+		else if(userCmd.equals("chain"))
+		{
+			if(args.length < 2)
+			{
+				System.out.println("Error: missing arguments");
+				printArgList();
+			}
+			else if(args.length > 2) proc_batch(args);
+			else proc_chain(args[1]);
+		}
+		else if(userCmd.equals("generate")) proc_generate(args);
+		else if(userCmd.equals("tune")) proc_tune(args);
+		else if(userCmd.equals("index")) proc_index(args);
+		else if(args.length > 1) proc_batch(args);
+		else if(userCmd.equals("bitcrush")) proc_bitcrush();
 		else if(userCmd.equals("reverse")) proc_reverse();
 		else if(userCmd.equals("chswap")) proc_chswap();
 		else if(userCmd.equals("chsub")) proc_chsub();
@@ -42,6 +66,685 @@ public class Main
 		System.out.println("\"reverse\" : Reverse Audio FX");
 		System.out.println("\"chswap\" : Channel Swap Audio FX");
 		System.out.println("\"chsub\" : Channel Subtract Audio FX");
+		System.out.println("\"chain <effect>[:<value>],<effect>[:<value>]...\" : several effects in a single pass (example: chain chswap,bitcrush:4,chsub)");
+		System.out.print("\nBatch mode (no prompts, processes every .wav file in a directory tree):\n\n");
+		System.out.println("<effect> --in-dir <directory> --out-dir <directory> [--jobs <n>] [--level <bitcrush level>] [--buffer <frames|auto>] [--metrics <directory>] [--cache <directory>]");
+		System.out.println("chain <chain> --in-dir <directory> --out-dir <directory> [--jobs <n>] [--buffer <frames|auto>] [--metrics <directory>] [--cache <directory>]");
+		System.out.println("--cache options: [--cache-size <MiB>] [--cache-mode <copy|link>]");
+		System.out.println("--index <file> : metadata index, files are queued longest first");
+		System.out.print("\nPipe mode (reads a .wav stream from stdin, writes the processed .wav stream to stdout):\n\n");
+		System.out.println("<effect> --pipe [--level <bitcrush level>] [--buffer <frames|auto>] [--metrics <file>]");
+		System.out.println("chain <chain> --pipe [--buffer <frames|auto>] [--metrics <file>]");
+		System.out.print("\nDaemon mode (resident job server on a Unix domain socket, and its client):\n\n");
+		System.out.println("daemon [--socket <path>] [--jobs <n>] [--cache <directory>] [--cache-size <MiB>] [--cache-mode <copy|link>]");
+		System.out.println("client [--socket <path>] <effect> --in <file> --out <file> [--level <bitcrush level>] [--buffer <frames>]");
+		System.out.println("client [--socket <path>] chain <chain> --in <file> --out <file> [--buffer <frames>]");
+		System.out.println("client [--socket <path>] status|shutdown");
+		System.out.print("\nBlock size tuning (saves the fastest block size for this host; later runs load it):\n\n");
+		System.out.println("tune [--dir <directory>] [--size <MiB>] [--profile <file>]");
+		System.out.print("\nMetadata index (format, rate, bits, channels and length of every .wav file, kept up to date):\n\n");
+		System.out.println("index <directory> [--index <file>] [--jobs <n>] [--list <file|->]");
+		System.out.print("\nSynthetic test files:\n\n");
+		System.out.println("generate --out <file> [--seconds <s>] [--rate <hz>] [--bits <16|24>] [--channels <n>] [--signal <sine|noise|silence|mixed>] [--seed <n>] [--list-chunk <bytes>] [--partial-block]");
+		System.out.println("generate --out-dir <directory> [--seconds <s>] [--rate <hz>] [--seed <n>] : standard test corpus");
+	}
+
+	public static void proc_batch(String[] args)
+	{
+		AudioBatch batch = null;
+		AudioResultCache cache = null;
+		AudioMetadataIndex index = null;
+
+		String inputDir = "";
+		String outputDir = "";
+		String metricsDir = "";
+		String bufferArg = "";
+		String cacheDir = "";
+		String cacheMode = "copy";
+		String indexDir = "";
+		int nJobs = Runtime.getRuntime().availableProcessors();
+		int level = 0;
+		int bufferSize = 0;
+		int bufferBytes = 0;
+		long cacheSize = AudioResultCache.SIZE_MAX_DEFAULT;
+		int nArg = 0;
+
+		/*"chain" takes the chain description as its first argument.*/
+		nArg = userCmd.equals("chain") ? 2 : 1;
+
+		try
+		{
+			for(; nArg < args.length; nArg += 2)
+			{
+				if((nArg + 1) >= args.length) throw new IllegalArgumentException();
+
+				if(args[nArg].equals("--in-dir")) inputDir = args[nArg + 1];
+				else if(args[nArg].equals("--out-dir")) outputDir = args[nArg + 1];
+				else if(args[nArg].equals("--jobs")) nJobs = Integer.parseInt(args[nArg + 1]);
+				else if(args[nArg].equals("--level")) level = Integer.parseInt(args[nArg + 1]);
+				else if(args[nArg].equals("--buffer")) bufferArg = args[nArg + 1];
+				else if(args[nArg].equals("--metrics")) metricsDir = args[nArg + 1];
+				else if(args[nArg].equals("--cache")) cacheDir = args[nArg + 1];
+				else if(args[nArg].equals("--cache-size")) cacheSize = Long.parseLong(args[nArg + 1])*0x100000L;
+				else if(args[nArg].equals("--cache-mode")) cacheMode = args[nArg + 1];
+				else if(args[nArg].equals("--index")) indexDir = args[nArg + 1];
+				else throw new IllegalArgumentException();
+			}
+
+			if(!bufferArg.equals("") && !bufferArg.equals("auto")) bufferSize = Integer.parseInt(bufferArg);
+			if(!cacheMode.equals("link") && !cacheMode.equals("copy")) throw new IllegalArgumentException();
+		}
+		catch(Exception e)
+		{
+			System.out.println("Error: invalid argument");
+			printArgList();
+			return;
+		}
+
+		if(inputDir.equals("") || outputDir.equals(""))
+		{
+			System.out.println("Error: missing arguments");
+			printArgList();
+			return;
+		}
+
+		batch = new AudioBatch(userCmd, inputDir, outputDir);
+		batch.setEffectParam(level);
+		batch.setMetricsDirectory(metricsDir);
+		if(userCmd.equals("chain")) batch.setChain(args[1]);
+
+		if(!batch.setJobs(nJobs))
+		{
+			System.out.println(batch.getLastErrorMessage());
+			return;
+		}
+
+		if(bufferSize > 0)
+		{
+			if(!batch.setBufferSize(bufferSize))
+			{
+				System.out.println(batch.getLastErrorMessage());
+				return;
+			}
+		}
+		else
+		{
+			/*Tuned on the output directory's storage.*/
+			bufferBytes = bufferSizeProfile(outputDir, bufferArg.equals("auto"), System.out);
+			if(bufferBytes > 0) batch.setBufferSizeBytes(bufferBytes);
+		}
+
+		if(!cacheDir.equals(""))
+		{
+			cache = resultCacheCreate(cacheDir, cacheSize, cacheMode);
+			if(cache == null) return;
+
+			batch.setResultCache(cache);
+		}
+
+		if(!indexDir.equals(""))
+		{
+			index = new AudioMetadataIndex(indexDir);
+			index.setJobs(nJobs);
+			if(!index.load()) System.out.println(index.getLastErrorMessage());
+
+			batch.setMetadataIndex(index);
+		}
+
+		AudioMonitor.enableForMode();
+
+		System.out.println("Batch Started...");
+
+		if(!batch.run())
+		{
+			System.out.println(batch.getLastErrorMessage());
+			return;
+		}
+
+		if((index != null) && !index.save()) System.out.println(index.getLastErrorMessage());
+
+		System.out.println("Batch Finished: " + batch.getSucceededCount() + " succeeded, " + batch.getFailedCount() + " failed.");
+	}
+
+	/*
+	 * Pipe mode: stdout carries the audio stream, so messages go to stderr.
+	 * A single effect runs as a one-stage chain, so its parameter is checked once the stream format is known.
+	 */
+
+	public static void proc_pipe(String[] args)
+	{
+		AudioChain chain = null;
+
+		String chainSpec = "";
+		String metricsFile = "";
+		String bufferArg = "";
+		int level = 0;
+		int bufferSize = 0;
+		int bufferBytes = 0;
+		int nArg = 0;
+
+		/*"chain" takes the chain description as its first argument.*/
+		nArg = userCmd.equals("chain") ? 2 : 1;
+
+		try
+		{
+			for(; nArg < args.length; nArg++)
+			{
+				if(args[nArg].equals("--pipe")) continue;
+
+				if(args[nArg].equals("--level") && ((nArg + 1) < args.length)) level = Integer.parseInt(args[++nArg]);
+				else if(args[nArg].equals("--buffer") && ((nArg + 1) < args.length)) bufferArg = args[++nArg];
+				else if(args[nArg].equals("--metrics") && ((nArg + 1) < args.length)) metricsFile = args[++nArg];
+				else throw new IllegalArgumentException();
+			}
+
+			if(!bufferArg.equals("") && !bufferArg.equals("auto")) bufferSize = Integer.parseInt(bufferArg);
+		}
+		catch(Exception e)
+		{
+			System.err.println("Error: invalid argument");
+			System.exit(1);
+		}
+
+		if(userCmd.equals("chain")) chainSpec = args[1];
+		else if(userCmd.equals("bitcrush")) chainSpec = userCmd + ":" + level;
+		else chainSpec = userCmd;
+
+		chain = new AudioChain("", "");
+
+		if(!chain.setChain(chainSpec))
+		{
+			System.err.println(chain.errMsg);
+			System.exit(1);
+		}
+
+		chain.setMetricsReport(metricsFile);
+
+		if(bufferSize > 0)
+		{
+			if(!chain.setBufferSize(bufferSize))
+			{
+				System.err.println(chain.errMsg);
+				System.exit(1);
+			}
+		}
+		else
+		{
+			bufferBytes = bufferSizeProfile("", bufferArg.equals("auto"), System.err);
+			if(bufferBytes > 0) chain.setBufferSizeBytes(bufferBytes);
+		}
+
+		if(!chain.runStream(new BufferedInputStream(System.in, 0x10000), new BufferedOutputStream(System.out, 0x10000)))
+		{
+			System.err.println(chain.getLastErrorMessage());
+			System.exit(1);
+		}
+	}
+
+	public static void proc_generate(String[] args)
+	{
+		AudioGenerator generator = null;
+
+		String outputFile = "";
+		String outputDir = "";
+		double seconds = 10.0;
+		int sampleRate = 44100;
+		int bitDepth = 16;
+		int nChannels = 2;
+		long seed = 0L;
+		int listChunkSize = 0;
+		boolean partialBlock = false;
+		AudioGenerator.Signals signal = AudioGenerator.Signals.MIXED;
+		int nArg = 0;
+		int nFailed = 0;
+
+		try
+		{
+			for(nArg = 1; nArg < args.length; nArg += 2)
+			{
+				if(args[nArg].equals("--partial-block"))
+				{
+					partialBlock = true;
+					nArg--;
+					continue;
+				}
+
+				if((nArg + 1) >= args.length) throw new IllegalArgumentException();
+
+				if(args[nArg].equals("--out")) outputFile = args[nArg + 1];
+				else if(args[nArg].equals("--out-dir")) outputDir = args[nArg + 1];
+				else if(args[nArg].equals("--seconds")) seconds = Double.parseDouble(args[nArg + 1]);
+				else if(args[nArg].equals("--rate")) sampleRate = Integer.parseInt(args[nArg + 1]);
+				else if(args[nArg].equals("--bits")) bitDepth = Integer.parseInt(args[nArg + 1]);
+				else if(args[nArg].equals("--channels")) nChannels = Integer.parseInt(args[nArg + 1]);
+				else if(args[nArg].equals("--signal")) signal = AudioGenerator.Signals.valueOf(args[nArg + 1].toUpperCase());
+				else if(args[nArg].equals("--seed")) seed = Long.parseLong(args[nArg + 1]);
+				else if(args[nArg].equals("--list-chunk")) listChunkSize = Integer.parseInt(args[nArg + 1]);
+				else throw new IllegalArgumentException();
+			}
+		}
+		catch(Exception e)
+		{
+			System.out.println("Error: invalid argument");
+			printArgList();
+			return;
+		}
+
+		if(!outputDir.equals(""))
+		{
+			nFailed = AudioGenerator.corpusCreate(outputDir, sampleRate, seconds, seed);
+			if(nFailed > 0) System.out.println("Corpus Finished: " + nFailed + " failed.");
+			else System.out.println("Corpus Finished.");
+			return;
+		}
+
+		if(outputFile.equals(""))
+		{
+			System.out.println("Error: missing arguments");
+			printArgList();
+			return;
+		}
+
+		generator = new AudioGenerator(outputFile);
+		generator.setSignal(signal);
+		generator.setSeed(seed);
+		generator.setPartialBlock(partialBlock);
+
+		if(!generator.setFormat(sampleRate, bitDepth, nChannels) || !generator.setDuration(seconds) || !generator.setListChunkSize(listChunkSize))
+		{
+			System.out.println("Error: invalid argument");
+			printArgList();
+			return;
+		}
+
+		if(!generator.initialize())
+		{
+			System.out.println(generator.getLastErrorMessage());
+			return;
+		}
+
+		if(!generator.runDSP())
+		{
+			System.out.println(generator.getLastErrorMessage());
+			generator.deinitialize();
+			return;
+		}
+
+		generator.deinitialize();
+		System.out.println("Finished.");
+	}
+
+	public static void proc_daemon(String[] args)
+	{
+		AudioDaemon daemon = null;
+		AudioResultCache cache = null;
+
+		String socketDir = "";
+		String cacheDir = "";
+		String cacheMode = "copy";
+		int nJobs = Runtime.getRuntime().availableProcessors();
+		long cacheSize = AudioResultCache.SIZE_MAX_DEFAULT;
+		int nArg = 0;
+
+		try
+		{
+			for(nArg = 1; nArg < args.length; nArg += 2)
+			{
+				if((nArg + 1) >= args.length) throw new IllegalArgumentException();
+
+				if(args[nArg].equals("--socket")) socketDir = args[nArg + 1];
+				else if(args[nArg].equals("--jobs")) nJobs = Integer.parseInt(args[nArg + 1]);
+				else if(args[nArg].equals("--cache")) cacheDir = args[nArg + 1];
+				else if(args[nArg].equals("--cache-size")) cacheSize = Long.parseLong(args[nArg + 1])*0x100000L;
+				else if(args[nArg].equals("--cache-mode")) cacheMode = args[nArg + 1];
+				else throw new IllegalArgumentException();
+			}
+
+			if(!cacheMode.equals("link") && !cacheMode.equals("copy")) throw new IllegalArgumentException();
+		}
+		catch(Exception e)
+		{
+			System.out.println("Error: invalid argument");
+			printArgList();
+			return;
+		}
+
+		daemon = new AudioDaemon(socketDir);
+
+		if(!daemon.setJobs(nJobs))
+		{
+			System.out.println(daemon.getLastErrorMessage());
+			return;
+		}
+
+		if(!cacheDir.equals(""))
+		{
+			cache = resultCacheCreate(cacheDir, cacheSize, cacheMode);
+			if(cache == null) return;
+
+			daemon.setResultCache(cache);
+		}
+
+		AudioMonitor.enableForMode();
+
+		System.out.println("Daemon Started: " + daemon.getSocket());
+
+		if(!daemon.run())
+		{
+			System.out.println(daemon.getLastErrorMessage());
+			return;
+		}
+
+		System.out.println("Daemon Finished.");
+	}
+
+	/*
+	 * Client: prints the daemon's JSON response, or the error message (exit status 1).
+	 */
+
+	public static void proc_client(String[] args)
+	{
+		AudioClient client = null;
+
+		String socketDir = "";
+		String effect = "";
+		String chainSpec = "";
+		String inputFile = "";
+		String outputFile = "";
+		String request = "";
+		String response = "";
+		int level = 0;
+		int bufferSize = 0;
+		int nArg = 1;
+
+		try
+		{
+			if((nArg + 1) < args.length && args[nArg].equals("--socket"))
+			{
+				socketDir = args[nArg + 1];
+				nArg += 2;
+			}
+
+			effect = args[nArg++].toLowerCase();
+			if(effect.equals("chain")) chainSpec = args[nArg++];
+
+			for(; nArg < args.length; nArg += 2)
+			{
+				if((nArg + 1) >= args.length) throw new IllegalArgumentException();
+
+				if(args[nArg].equals("--in")) inputFile = args[nArg + 1];
+				else if(args[nArg].equals("--out")) outputFile = args[nArg + 1];
+				else if(args[nArg].equals("--level")) level = Integer.parseInt(args[nArg + 1]);
+				else if(args[nArg].equals("--buffer")) bufferSize = Integer.parseInt(args[nArg + 1]);
+				else if(args[nArg].equals("--socket")) socketDir = args[nArg + 1];
+				else throw new IllegalArgumentException();
+			}
+		}
+		catch(Exception e)
+		{
+			System.out.println("Error: invalid argument");
+			printArgList();
+			System.exit(1);
+		}
+
+		if(effect.equals("status") || effect.equals("shutdown")) request = effect;
+		else if(inputFile.equals("") || outputFile.equals(""))
+		{
+			System.out.println("Error: missing arguments");
+			printArgList();
+			System.exit(1);
+		}
+		else request = AudioClient.runRequest(effect, inputFile, outputFile, level, chainSpec, bufferSize);
+
+		client = new AudioClient(socketDir);
+		response = client.send(request);
+
+		if(response == null)
+		{
+			System.out.println(client.getLastErrorMessage());
+			System.exit(1);
+		}
+
+		if(!response.startsWith("ok\t"))
+		{
+			System.out.println(response.substring(response.indexOf('\t') + 1));
+			System.exit(1);
+		}
+
+		System.out.println(response.substring(3));
+	}
+
+	public static void proc_index(String[] args)
+	{
+		AudioMetadataIndex index = null;
+
+		String rootDir = "";
+		String indexDir = "";
+		String listDir = "";
+		int nJobs = Runtime.getRuntime().availableProcessors();
+		int nArg = 0;
+		int nFiles = 0;
+		int nUnreadable = 0;
+		long dataSize = 0L;
+		double seconds = 0.0;
+		long time = 0L;
+
+		try
+		{
+			rootDir = args[1];
+
+			for(nArg = 2; nArg < args.length; nArg += 2)
+			{
+				if((nArg + 1) >= args.length) throw new IllegalArgumentException();
+
+				if(args[nArg].equals("--index")) indexDir = args[nArg + 1];
+				else if(args[nArg].equals("--jobs")) nJobs = Integer.parseInt(args[nArg + 1]);
+				else if(args[nArg].equals("--list")) listDir = args[nArg + 1];
+				else throw new IllegalArgumentException();
+			}
+		}
+		catch(Exception e)
+		{
+			System.out.println("Error: invalid argument");
+			printArgList();
+			return;
+		}
+
+		index = new AudioMetadataIndex(indexDir);
+
+		if(!index.setJobs(nJobs))
+		{
+			System.out.println(index.getLastErrorMessage());
+			return;
+		}
+
+		time = System.nanoTime();
+
+		if(!index.load()) System.out.println(index.getLastErrorMessage());
+
+		if(!index.scan(rootDir))
+		{
+			System.out.println(index.getLastErrorMessage());
+			return;
+		}
+
+		if(!index.save())
+		{
+			System.out.println(index.getLastErrorMessage());
+			return;
+		}
+
+		time = System.nanoTime() - time;
+
+		for(AudioMetadataIndex.Entry entry : index.getEntries())
+		{
+			nFiles++;
+
+			if(!entry.isValid()) nUnreadable++;
+
+			dataSize += entry.dataSize;
+			seconds += entry.getSeconds();
+		}
+
+		if(!listDir.equals("") && !indexList(index, listDir)) return;
+
+		System.out.println(String.format("Index Finished: %d files (%d parsed, %d unchanged, %d unreadable), %.1f hours, %.1f GiB of audio data, in %.1f s.",
+			nFiles, index.getParsedCount(), index.getUnchangedCount(), nUnreadable, (seconds/3600.0), (((double) dataSize)/1073741824.0), (((double) time)/1.0e9)));
+		System.out.println("Index saved to " + index.getIndex());
+	}
+
+	/*
+	 * Tab-separated listing of the index, sorted by path: path, format, sample rate, bits, channels, seconds, data bytes
+	 * (or path, "error", message). "-" for stdout.
+	 */
+
+	public static boolean indexList(AudioMetadataIndex index, String listDir)
+	{
+		ArrayList<AudioMetadataIndex.Entry> entries = new ArrayList<AudioMetadataIndex.Entry>(index.getEntries());
+		PrintStream list = null;
+
+		entries.sort(Comparator.comparing((AudioMetadataIndex.Entry entry) -> entry.path));
+
+		try
+		{
+			list = listDir.equals("-") ? System.out : new PrintStream(new BufferedOutputStream(new FileOutputStream(listDir)));
+		}
+		catch(Exception e)
+		{
+			System.out.println("Error: failed to create list file.");
+			return false;
+		}
+
+		for(AudioMetadataIndex.Entry entry : entries)
+		{
+			if(entry.isValid()) list.println(entry.path + "\t" + entry.format + "\t" + entry.sampleRate + "\t" + entry.bitDepth + "\t" + entry.nChannels
+				+ "\t" + String.format("%.3f", entry.getSeconds()) + "\t" + entry.dataSize);
+			else list.println(entry.path + "\terror\t" + entry.error);
+		}
+
+		if(list == System.out) list.flush();
+		else list.close();
+
+		return true;
+	}
+
+	public static void proc_tune(String[] args)
+	{
+		AudioBufferTuner tuner = null;
+
+		String workDir = "";
+		String profileDir = "";
+		int testSize = 0;
+		int[] bufferSizes = null;
+		double[] throughput = null;
+		int nArg = 0;
+		int nSize = 0;
+
+		try
+		{
+			for(nArg = 1; nArg < args.length; nArg += 2)
+			{
+				if((nArg + 1) >= args.length) throw new IllegalArgumentException();
+
+				if(args[nArg].equals("--dir")) workDir = args[nArg + 1];
+				else if(args[nArg].equals("--size")) testSize = Integer.parseInt(args[nArg + 1])*0x100000;
+				else if(args[nArg].equals("--profile")) profileDir = args[nArg + 1];
+				else throw new IllegalArgumentException();
+			}
+		}
+		catch(Exception e)
+		{
+			System.out.println("Error: invalid argument");
+			printArgList();
+			return;
+		}
+
+		tuner = new AudioBufferTuner(workDir);
+		if(!profileDir.equals("")) tuner.setProfile(profileDir);
+
+		if((testSize != 0) && !tuner.setTestSize(testSize))
+		{
+			System.out.println(tuner.getLastErrorMessage());
+			return;
+		}
+
+		System.out.println("Tuning Started...");
+
+		if(!tuner.tune())
+		{
+			System.out.println(tuner.getLastErrorMessage());
+			return;
+		}
+
+		bufferSizes = AudioBufferTuner.getBufferSizes();
+		throughput = tuner.getThroughput();
+
+		for(nSize = 0; nSize < bufferSizes.length; nSize++)
+			System.out.println(String.format("%8d bytes: %8.1f MiB/s%s", bufferSizes[nSize], throughput[nSize], ((bufferSizes[nSize] == tuner.getBestSize()) ? "  <" : "")));
+
+		if(!tuner.profileSave())
+		{
+			System.out.println(tuner.getLastErrorMessage());
+			return;
+		}
+
+		System.out.println("Tuning Finished: " + tuner.getBestSize() + " bytes per block, saved to " + tuner.getProfile());
+
+		if(!tuner.getStorageBound())
+			System.out.println("Warning: the test file could not be dropped from the page cache (GNU dd needed): this measured CPU and memory, not storage.");
+	}
+
+	/*
+	 * Block size in bytes saved for this host, or 0 (default block size) if there is none.
+	 * With "tune" set and no saved block size, runs the tuner in workDir first and saves the result.
+	 */
+
+	public static int bufferSizeProfile(String workDir, boolean tune, PrintStream log)
+	{
+		AudioBufferTuner tuner = null;
+		int nBytes = AudioBufferTuner.profileLoad();
+
+		if((nBytes > 0) || !tune) return nBytes;
+
+		log.println("No block size profile for this host, tuning...");
+
+		tuner = new AudioBufferTuner(workDir);
+
+		if(!tuner.tune() || !tuner.profileSave())
+		{
+			log.println(tuner.getLastErrorMessage());
+			log.println("Using the default block size.");
+			return 0;
+		}
+
+		log.println("Block size: " + tuner.getBestSize() + " bytes, saved to " + tuner.getProfile());
+		return tuner.getBestSize();
+	}
+
+	/*
+	 * Result cache for batch and daemon modes, or null (error printed) if the directory cannot be used.
+	 */
+
+	public static AudioResultCache resultCacheCreate(String cacheDir, long cacheSize, String cacheMode)
+	{
+		AudioResultCache cache = new AudioResultCache(cacheDir, cacheSize);
+
+		cache.setHardLinks(cacheMode.equals("link"));
+
+		if(!cache.initialize())
+		{
+			System.out.println(cache.getLastErrorMessage());
+			return null;
+		}
+
+		return cache;
+	}
+
+	public static void bufferSizeApply(AudioBaseClass audioobj)
+	{
+		int nBytes = AudioBufferTuner.profileLoad();
+
+		if(nBytes > 0) audioobj.setBufferSizeBytes(nBytes);
 	}
 
 	public static void proc_bitcrush()
@@ -76,6 +779,8 @@ public class Main
 		stdin = null;
 
 		audioobj = new AudioBitCrush(inputDir, outputDir);
+		audioobj.setParallelism(Runtime.getRuntime().availableProcessors());
+		bufferSizeApply(audioobj);
 
 		if(!audioobj.initialize())
 		{
@@ -100,7 +805,7 @@ public class Main
 			return;
 		}
 
-		System.out.println("DSP Finished.");
+		System.out.println("DSP Finished: " + audioobj.getMetrics());
 		audioobj.deinitialize();
 	}
 
@@ -120,6 +825,8 @@ public class Main
 		stdin = null;
 
 		audioobj = new AudioReverse(inputDir, outputDir);
+		audioobj.setParallelism(Runtime.getRuntime().availableProcessors());
+		bufferSizeApply(audioobj);
 
 		if(!audioobj.initialize())
 		{
@@ -137,7 +844,7 @@ public class Main
 			return;
 		}
 
-		System.out.println("DSP Finished.");
+		System.out.println("DSP Finished: " + audioobj.getMetrics());
 		audioobj.deinitialize();
 	}
 
@@ -157,6 +864,8 @@ public class Main
 		stdin = null;
 
 		audioobj = new AudioChannelSwap(inputDir, outputDir);
+		audioobj.setParallelism(Runtime.getRuntime().availableProcessors());
+		bufferSizeApply(audioobj);
 
 		if(!audioobj.initialize())
 		{
@@ -174,7 +883,7 @@ public class Main
 			return;
 		}
 
-		System.out.println("DSP Finished.");
+		System.out.println("DSP Finished: " + audioobj.getMetrics());
 		audioobj.deinitialize();
 	}
 
@@ -194,6 +903,8 @@ public class Main
 		stdin = null;
 
 		audioobj = new AudioChannelSubtract(inputDir, outputDir);
+		audioobj.setParallelism(Runtime.getRuntime().availableProcessors());
+		bufferSizeApply(audioobj);
 
 		if(!audioobj.initialize())
 		{
@@ -211,8 +922,53 @@ public class Main
 			return;
 		}
 
-		System.out.println("DSP Finished.");
+		System.out.println("DSP Finished: " + audioobj.getMetrics());
 		audioobj.deinitialize();
 	}
-}
 
+	public static void proc_chain(String chainSpec)
+	{
+		Scanner stdin = new Scanner(System.in);
+		String inputDir = "";
+		String outputDir = "";
+
+		System.out.print("Enter input file directory: ");
+		inputDir = stdin.nextLine();
+
+		System.out.print("Enter output file directory: ");
+		outputDir = stdin.nextLine();
+
+		stdin.close();
+		stdin = null;
+
+		audioobj = new AudioChain(inputDir, outputDir);
+		audioobj.setParallelism(Runtime.getRuntime().availableProcessors());
+		bufferSizeApply(audioobj);
+
+		if(!audioobj.initialize())
+		{
+			System.out.println(audioobj.getLastErrorMessage());
+			audioobj.deinitialize();
+			return;
+		}
+
+		if(!((AudioChain) audioobj).setChain(chainSpec))
+		{
+			System.out.println(audioobj.getLastErrorMessage());
+			audioobj.deinitialize();
+			return;
+		}
+
+		System.out.println("DSP Started...");
+
+		if(!audioobj.runDSP())
+		{
+			System.out.println(audioobj.getLastErrorMessage());
+			audioobj.deinitialize();
+			return;
+		}
+
+		System.out.println("DSP Finished: " + audioobj.getMetrics());
+		audioobj.deinitialize();
+	}
+}
@@ -1,13 +1,21 @@
 /*
  * Number Utility Class
- * Version 1.1
+ * Version 1.2
  *
  * Author: Rafael Sabe
  * Email: rafaelmsabe@gmail.com
  */
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
 public class NumUtils
 {
+	private static final VarHandle I16_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle I16_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle I32_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
 	/*
 	 * binCast...() methods: binary casting.
 	 * Basically cast different types of integers as raw binary (unsigned integers).
@@ -111,8 +119,17 @@ public class NumUtils
 
 	/*
 	 * Extract unsigned/signed 32bit/24bit/16bit integer values from a byte array, little-endian/big-endian
+	 * (and 64bit little-endian, signed, as used by RF64 headers)
 	 */
 
+	public static long bytesToI64LE(byte[] byteArray, int offset)
+	{
+		if(offset < 0) return 0L;
+		if(byteArray.length < (offset + 8)) return 0L;
+
+		return ((bytesToU32LE(byteArray, (offset + 4)) << 32) | bytesToU32LE(byteArray, offset));
+	}
+
 	public static long bytesToU32LE(byte[] byteArray, int offset)
 	{
 		long output = 0L;
@@ -288,9 +305,20 @@ public class NumUtils
 	}
 
 	/*
-	 * Writes a 32bit/24bit/16bit value into a byte array, little-endian or big-endian
+	 * Writes a 64bit/32bit/24bit/16bit value into a byte array, little-endian or big-endian
 	 */
 
+	public static boolean n64ToBytesLE(long n64, byte[] byteArray, int offset)
+	{
+		if(offset < 0) return false;
+		if(byteArray.length < (offset + 8)) return false;
+
+		n32ToBytesLE((int) n64GetL32(n64), byteArray, offset);
+		n32ToBytesLE((int) n64GetH32(n64), byteArray, (offset + 4));
+
+		return true;
+	}
+
 	public static boolean n32ToBytesLE(int n32, byte[] byteArray, int offset)
 	{
 		if(offset < 0) return false;
@@ -362,5 +390,215 @@ public class NumUtils
 
 		return true;
 	}
-}
 
+	/*
+	 * Bulk conversions: decode/encode "count" consecutive 16bit/24bit/32bit samples between a byte array and a
+	 * short/int array in one call, little-endian or big-endian.
+	 *
+	 * Bounds are checked once for the whole block instead of once per sample, so these are the ones to use in
+	 * sample processing loops.
+	 */
+
+	public static boolean bytesToI16ArrayLE(byte[] byteArray, int offset, short[] output, int outputOffset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, output.length, outputOffset, count, 2)) return false;
+
+		for(n = 0; n < count; n++) output[outputOffset + n] = (short) I16_LE.get(byteArray, (offset + 2*n));
+
+		return true;
+	}
+
+	public static boolean bytesToI16ArrayLE(byte[] byteArray, int offset, int[] output, int outputOffset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, output.length, outputOffset, count, 2)) return false;
+
+		for(n = 0; n < count; n++) output[outputOffset + n] = (short) I16_LE.get(byteArray, (offset + 2*n));
+
+		return true;
+	}
+
+	public static boolean bytesToI24ArrayLE(byte[] byteArray, int offset, int[] output, int outputOffset, int count)
+	{
+		int n = 0;
+		int nByte = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, output.length, outputOffset, count, 3)) return false;
+
+		nByte = offset;
+		for(n = 0; n < count; n++)
+		{
+			/*Place the most significant byte at bit 31, then shift back down to sign-extend.*/
+			output[outputOffset + n] = (((byteArray[nByte + 2] << 24) | ((byteArray[nByte + 1] & 0xff) << 16) | ((byteArray[nByte] & 0xff) << 8)) >> 8);
+			nByte += 3;
+		}
+
+		return true;
+	}
+
+	/*
+	 * 32-bit samples, integer or IEEE float: raw 32-bit values (floats as their bit patterns).
+	 */
+
+	public static boolean bytesToI32ArrayLE(byte[] byteArray, int offset, int[] output, int outputOffset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, output.length, outputOffset, count, 4)) return false;
+
+		for(n = 0; n < count; n++) output[outputOffset + n] = (int) I32_LE.get(byteArray, (offset + 4*n));
+
+		return true;
+	}
+
+	public static boolean bytesToI16ArrayBE(byte[] byteArray, int offset, short[] output, int outputOffset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, output.length, outputOffset, count, 2)) return false;
+
+		for(n = 0; n < count; n++) output[outputOffset + n] = (short) I16_BE.get(byteArray, (offset + 2*n));
+
+		return true;
+	}
+
+	public static boolean bytesToI16ArrayBE(byte[] byteArray, int offset, int[] output, int outputOffset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, output.length, outputOffset, count, 2)) return false;
+
+		for(n = 0; n < count; n++) output[outputOffset + n] = (short) I16_BE.get(byteArray, (offset + 2*n));
+
+		return true;
+	}
+
+	public static boolean bytesToI24ArrayBE(byte[] byteArray, int offset, int[] output, int outputOffset, int count)
+	{
+		int n = 0;
+		int nByte = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, output.length, outputOffset, count, 3)) return false;
+
+		nByte = offset;
+		for(n = 0; n < count; n++)
+		{
+			output[outputOffset + n] = (((byteArray[nByte] << 24) | ((byteArray[nByte + 1] & 0xff) << 16) | ((byteArray[nByte + 2] & 0xff) << 8)) >> 8);
+			nByte += 3;
+		}
+
+		return true;
+	}
+
+	public static boolean i16ArrayToBytesLE(short[] input, int inputOffset, byte[] byteArray, int offset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, input.length, inputOffset, count, 2)) return false;
+
+		for(n = 0; n < count; n++) I16_LE.set(byteArray, (offset + 2*n), input[inputOffset + n]);
+
+		return true;
+	}
+
+	public static boolean i16ArrayToBytesLE(int[] input, int inputOffset, byte[] byteArray, int offset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, input.length, inputOffset, count, 2)) return false;
+
+		for(n = 0; n < count; n++) I16_LE.set(byteArray, (offset + 2*n), (short) input[inputOffset + n]);
+
+		return true;
+	}
+
+	public static boolean i24ArrayToBytesLE(int[] input, int inputOffset, byte[] byteArray, int offset, int count)
+	{
+		int n = 0;
+		int nByte = 0;
+		int sample = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, input.length, inputOffset, count, 3)) return false;
+
+		nByte = offset;
+		for(n = 0; n < count; n++)
+		{
+			sample = input[inputOffset + n];
+			byteArray[nByte] = (byte) sample;
+			byteArray[nByte + 1] = (byte) (sample >> 8);
+			byteArray[nByte + 2] = (byte) (sample >> 16);
+			nByte += 3;
+		}
+
+		return true;
+	}
+
+	public static boolean i32ArrayToBytesLE(int[] input, int inputOffset, byte[] byteArray, int offset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, input.length, inputOffset, count, 4)) return false;
+
+		for(n = 0; n < count; n++) I32_LE.set(byteArray, (offset + 4*n), input[inputOffset + n]);
+
+		return true;
+	}
+
+	public static boolean i16ArrayToBytesBE(short[] input, int inputOffset, byte[] byteArray, int offset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, input.length, inputOffset, count, 2)) return false;
+
+		for(n = 0; n < count; n++) I16_BE.set(byteArray, (offset + 2*n), input[inputOffset + n]);
+
+		return true;
+	}
+
+	public static boolean i16ArrayToBytesBE(int[] input, int inputOffset, byte[] byteArray, int offset, int count)
+	{
+		int n = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, input.length, inputOffset, count, 2)) return false;
+
+		for(n = 0; n < count; n++) I16_BE.set(byteArray, (offset + 2*n), (short) input[inputOffset + n]);
+
+		return true;
+	}
+
+	public static boolean i24ArrayToBytesBE(int[] input, int inputOffset, byte[] byteArray, int offset, int count)
+	{
+		int n = 0;
+		int nByte = 0;
+		int sample = 0;
+
+		if(!checkBulkBounds(byteArray.length, offset, input.length, inputOffset, count, 3)) return false;
+
+		nByte = offset;
+		for(n = 0; n < count; n++)
+		{
+			sample = input[inputOffset + n];
+			byteArray[nByte] = (byte) (sample >> 16);
+			byteArray[nByte + 1] = (byte) (sample >> 8);
+			byteArray[nByte + 2] = (byte) sample;
+			nByte += 3;
+		}
+
+		return true;
+	}
+
+	private static boolean checkBulkBounds(int byteArrayLength, int offset, int arrayLength, int arrayOffset, int count, int bytesPerSample)
+	{
+		if(count < 0) return false;
+		if(offset < 0) return false;
+		if(arrayOffset < 0) return false;
+
+		if(((long) arrayLength) < (((long) arrayOffset) + ((long) count))) return false;
+		if(((long) byteArrayLength) < (((long) offset) + ((long) count)*((long) bytesPerSample))) return false;
+
+		return true;
+	}
+}
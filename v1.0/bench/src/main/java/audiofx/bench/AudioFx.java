@@ -0,0 +1,159 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+package audiofx.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/*
+ * Access to the audio FX classes from the benchmarks.
+ *
+ * JMH requires benchmarks to be in a named package, and classes in the default package (all of the audio FX classes)
+ * cannot be referenced from a named package at compile time. The methods under test are looked up once,
+ * as static final method handles, which the JIT compiler inlines like direct calls.
+ */
+
+final class AudioFx
+{
+	static final MethodHandle BYTES_TO_I16_LE;
+	static final MethodHandle BYTES_TO_I24_LE;
+	static final MethodHandle N16_TO_BYTES_LE;
+	static final MethodHandle N24_TO_BYTES_LE;
+
+	static final MethodHandle BYTES_TO_I16_ARRAY_LE;
+	static final MethodHandle BYTES_TO_I24_ARRAY_LE;
+	static final MethodHandle I16_ARRAY_TO_BYTES_LE;
+	static final MethodHandle I24_ARRAY_TO_BYTES_LE;
+
+	/*(Object effect, byte[] byteBuffer, int[] buffer, int nSamples)void*/
+	static final MethodHandle BLOCK_DECODE;
+
+	/*(Object effect, int[] buffer, int nFrames)void*/
+	static final MethodHandle BLOCK_PROCESS;
+
+	/*(Object effect, int[] buffer, byte[] byteBuffer, int nSamples)void*/
+	static final MethodHandle BLOCK_ENCODE;
+
+	static
+	{
+		try
+		{
+			final Class<?> NUMUTILS = Class.forName("NumUtils");
+			final Class<?> AUDIOBASE = Class.forName("AudioBaseClass");
+			final MethodHandles.Lookup AUDIOBASE_LOOKUP = MethodHandles.privateLookupIn(AUDIOBASE, MethodHandles.lookup());
+
+			final MethodType BYTES_TO_SAMPLE = MethodType.methodType(long.class, byte[].class, int.class);
+			final MethodType BYTES_TO_ARRAY = MethodType.methodType(boolean.class, byte[].class, int.class, int[].class, int.class, int.class);
+			final MethodType ARRAY_TO_BYTES = MethodType.methodType(boolean.class, int[].class, int.class, byte[].class, int.class, int.class);
+
+			BYTES_TO_I16_LE = MethodHandles.publicLookup().findStatic(NUMUTILS, "bytesToI16LE", BYTES_TO_SAMPLE);
+			BYTES_TO_I24_LE = MethodHandles.publicLookup().findStatic(NUMUTILS, "bytesToI24LE", BYTES_TO_SAMPLE);
+			N16_TO_BYTES_LE = MethodHandles.publicLookup().findStatic(NUMUTILS, "n16ToBytesLE", MethodType.methodType(boolean.class, short.class, byte[].class, int.class));
+			N24_TO_BYTES_LE = MethodHandles.publicLookup().findStatic(NUMUTILS, "n24ToBytesLE", MethodType.methodType(boolean.class, int.class, byte[].class, int.class));
+
+			BYTES_TO_I16_ARRAY_LE = MethodHandles.publicLookup().findStatic(NUMUTILS, "bytesToI16ArrayLE", BYTES_TO_ARRAY);
+			BYTES_TO_I24_ARRAY_LE = MethodHandles.publicLookup().findStatic(NUMUTILS, "bytesToI24ArrayLE", BYTES_TO_ARRAY);
+			I16_ARRAY_TO_BYTES_LE = MethodHandles.publicLookup().findStatic(NUMUTILS, "i16ArrayToBytesLE", ARRAY_TO_BYTES);
+			I24_ARRAY_TO_BYTES_LE = MethodHandles.publicLookup().findStatic(NUMUTILS, "i24ArrayToBytesLE", ARRAY_TO_BYTES);
+
+			BLOCK_DECODE = AUDIOBASE_LOOKUP.findVirtual(AUDIOBASE, "dspBlockDecode", MethodType.methodType(void.class, byte[].class, int[].class, int.class))
+				.asType(MethodType.methodType(void.class, Object.class, byte[].class, int[].class, int.class));
+			BLOCK_PROCESS = AUDIOBASE_LOOKUP.findVirtual(AUDIOBASE, "dspBlockProcess", MethodType.methodType(void.class, int[].class, int.class))
+				.asType(MethodType.methodType(void.class, Object.class, int[].class, int.class));
+			BLOCK_ENCODE = AUDIOBASE_LOOKUP.findVirtual(AUDIOBASE, "dspBlockEncode", MethodType.methodType(void.class, int[].class, byte[].class, int.class))
+				.asType(MethodType.methodType(void.class, Object.class, int[].class, byte[].class, int.class));
+		}
+		catch(Exception e)
+		{
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private AudioFx()
+	{
+	}
+
+	/*
+	 * Creates and initializes an effect object on an empty WAV file with the given format,
+	 * so its kernel can be run on in-memory blocks.
+	 */
+
+	static Object createEffect(String effect, int nChannels, int bitDepth, File fileWav) throws Exception
+	{
+		final Class<?> AUDIOBASE = Class.forName("AudioBaseClass");
+
+		Object audioobj = null;
+
+		writeEmptyWav(fileWav, nChannels, bitDepth);
+
+		audioobj = Class.forName("AudioBatch").getMethod("createEffect", String.class, String.class, String.class)
+			.invoke(null, effect, fileWav.getPath(), fileWav.getPath() + ".out.wav");
+
+		AUDIOBASE.getMethod("setInteractive", boolean.class).invoke(audioobj, false);
+
+		if(!((Boolean) AUDIOBASE.getMethod("initialize").invoke(audioobj)))
+			throw new IllegalStateException("AudioBaseClass.initialize failed for " + fileWav);
+
+		if(effect.equals("bitcrush")) audioobj.getClass().getMethod("setCutoff", int.class).invoke(audioobj, 4);
+
+		return audioobj;
+	}
+
+	static void deinitialize(Object audioobj) throws Exception
+	{
+		Class.forName("AudioBaseClass").getMethod("deinitialize").invoke(audioobj);
+	}
+
+	private static void writeEmptyWav(File fileWav, int nChannels, int bitDepth) throws Exception
+	{
+		final int SAMPLE_RATE = 48000;
+		final int BLOCK_ALIGN = nChannels*bitDepth/8;
+
+		byte[] header = new byte[44];
+
+		putTag(header, 0, "RIFF");
+		putU32(header, 4, 36);
+		putTag(header, 8, "WAVE");
+		putTag(header, 12, "fmt ");
+		putU32(header, 16, 16);
+		putU16(header, 20, 1);
+		putU16(header, 22, nChannels);
+		putU32(header, 24, SAMPLE_RATE);
+		putU32(header, 28, SAMPLE_RATE*BLOCK_ALIGN);
+		putU16(header, 32, BLOCK_ALIGN);
+		putU16(header, 34, bitDepth);
+		putTag(header, 36, "data");
+		putU32(header, 40, 0);
+
+		try(FileOutputStream output = new FileOutputStream(fileWav))
+		{
+			output.write(header);
+		}
+	}
+
+	private static void putTag(byte[] buffer, int offset, String tag)
+	{
+		for(int n = 0; n < 4; n++) buffer[offset + n] = (byte) tag.charAt(n);
+	}
+
+	private static void putU16(byte[] buffer, int offset, int value)
+	{
+		buffer[offset] = (byte) value;
+		buffer[offset + 1] = (byte) (value >> 8);
+	}
+
+	private static void putU32(byte[] buffer, int offset, int value)
+	{
+		putU16(buffer, offset, value);
+		putU16(buffer, (offset + 2), (value >> 16));
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+package audiofx.bench;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * Per-block processing of every effect (decode, kernel, encode), without file I/O.
+ * Each invocation processes N_SAMPLES samples in blocks of blockFrames frames, so scores are in samples/second
+ * whatever the block size and channel count (channel counts that do not divide N_SAMPLES fall short by
+ * less than 16 samples per invocation).
+ *
+ * Note: chswap and chsub require 2 or more channels to run on a file; with 1 channel their kernels are measured anyway.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(EffectBenchmark.N_SAMPLES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EffectBenchmark
+{
+	static final int N_SAMPLES = 1 << 20;
+
+	@Param({"bitcrush", "chswap", "chsub", "reverse"})
+	public String effect;
+
+	@Param({"16", "24"})
+	public int bitDepth;
+
+	@Param({"1", "2", "6", "16"})
+	public int nChannels;
+
+	@Param({"512", "4096", "32768"})
+	public int blockFrames;
+
+	private Object audioobj;
+	private File fileWav;
+
+	private byte[] byteBuffer;
+	private int[] buffer;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception
+	{
+		Random random = new Random(1L);
+
+		this.fileWav = File.createTempFile("audiofx_bench_", ".wav");
+		this.audioobj = AudioFx.createEffect(this.effect, this.nChannels, this.bitDepth, this.fileWav);
+
+		this.byteBuffer = new byte[this.blockFrames*this.nChannels*this.bitDepth/8];
+		this.buffer = new int[this.blockFrames*this.nChannels];
+
+		random.nextBytes(this.byteBuffer);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception
+	{
+		AudioFx.deinitialize(this.audioobj);
+		this.fileWav.delete();
+	}
+
+	@Benchmark
+	public byte[] processBlocks() throws Throwable
+	{
+		int nFramesRemaining = N_SAMPLES/this.nChannels;
+		int nFrames = 0;
+		int nSamples = 0;
+
+		while(nFramesRemaining > 0)
+		{
+			nFrames = Math.min(this.blockFrames, nFramesRemaining);
+			nSamples = nFrames*this.nChannels;
+
+			AudioFx.BLOCK_DECODE.invokeExact(this.audioobj, this.byteBuffer, this.buffer, nSamples);
+			AudioFx.BLOCK_PROCESS.invokeExact(this.audioobj, this.buffer, nFrames);
+			AudioFx.BLOCK_ENCODE.invokeExact(this.audioobj, this.buffer, this.byteBuffer, nSamples);
+
+			nFramesRemaining -= nFrames;
+		}
+
+		return this.byteBuffer;
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+package audiofx.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * Per-sample NumUtils conversions (as the effects used to call them) against the bulk block conversions.
+ * Scores are in samples/second.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(NumUtilsBenchmark.N_SAMPLES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumUtilsBenchmark
+{
+	static final int N_SAMPLES = 65536;
+
+	@Param({"16", "24"})
+	public int bitDepth;
+
+	private byte[] byteBuffer;
+	private int[] buffer;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(1L);
+
+		this.byteBuffer = new byte[N_SAMPLES*this.bitDepth/8];
+		this.buffer = new int[N_SAMPLES];
+
+		random.nextBytes(this.byteBuffer);
+		for(int n = 0; n < N_SAMPLES; n++) this.buffer[n] = random.nextInt() >> (32 - this.bitDepth);
+	}
+
+	@Benchmark
+	public int[] decodePerSample() throws Throwable
+	{
+		int nSample = 0;
+
+		if(this.bitDepth == 16)
+		{
+			for(nSample = 0; nSample < N_SAMPLES; nSample++)
+				this.buffer[nSample] = (int) (long) AudioFx.BYTES_TO_I16_LE.invokeExact(this.byteBuffer, (nSample*2));
+		}
+		else
+		{
+			for(nSample = 0; nSample < N_SAMPLES; nSample++)
+				this.buffer[nSample] = (int) (long) AudioFx.BYTES_TO_I24_LE.invokeExact(this.byteBuffer, (nSample*3));
+		}
+
+		return this.buffer;
+	}
+
+	@Benchmark
+	public int[] decodeBulk() throws Throwable
+	{
+		boolean ret = false;
+
+		if(this.bitDepth == 16) ret = (boolean) AudioFx.BYTES_TO_I16_ARRAY_LE.invokeExact(this.byteBuffer, 0, this.buffer, 0, N_SAMPLES);
+		else ret = (boolean) AudioFx.BYTES_TO_I24_ARRAY_LE.invokeExact(this.byteBuffer, 0, this.buffer, 0, N_SAMPLES);
+
+		return this.buffer;
+	}
+
+	@Benchmark
+	public byte[] encodePerSample() throws Throwable
+	{
+		boolean ret = false;
+		int nSample = 0;
+
+		if(this.bitDepth == 16)
+		{
+			for(nSample = 0; nSample < N_SAMPLES; nSample++)
+				ret = (boolean) AudioFx.N16_TO_BYTES_LE.invokeExact((short) this.buffer[nSample], this.byteBuffer, (nSample*2));
+		}
+		else
+		{
+			for(nSample = 0; nSample < N_SAMPLES; nSample++)
+				ret = (boolean) AudioFx.N24_TO_BYTES_LE.invokeExact(this.buffer[nSample], this.byteBuffer, (nSample*3));
+		}
+
+		return this.byteBuffer;
+	}
+
+	@Benchmark
+	public byte[] encodeBulk() throws Throwable
+	{
+		boolean ret = false;
+
+		if(this.bitDepth == 16) ret = (boolean) AudioFx.I16_ARRAY_TO_BYTES_LE.invokeExact(this.buffer, 0, this.byteBuffer, 0, N_SAMPLES);
+		else ret = (boolean) AudioFx.I24_ARRAY_TO_BYTES_LE.invokeExact(this.buffer, 0, this.byteBuffer, 0, N_SAMPLES);
+
+		return this.byteBuffer;
+	}
+}
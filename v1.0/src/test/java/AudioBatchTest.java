@@ -0,0 +1,83 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Batch mode (AudioBatch): directory walk, per-file failures, output layout.
+ */
+
+class AudioBatchTest
+{
+	@TempDir
+	Path dir;
+
+	@Test
+	void batchMirrorsInputTree() throws Exception
+	{
+		final Path DIR_IN = this.dir.resolve("in");
+		final Path DIR_OUT = this.dir.resolve("out");
+		final Path DIR_METRICS = this.dir.resolve("metrics");
+		final Path FILE_SINGLE = this.dir.resolve("single.wav");
+
+		AudioBatch batch = null;
+
+		Files.createDirectories(DIR_IN.resolve("sub"));
+		AudioTestFiles.generate(DIR_IN.resolve("a.wav"), 16, 2, 0);
+		AudioTestFiles.generate(DIR_IN.resolve("sub").resolve("b.WAV"), 24, 6, 0);
+		Files.write(DIR_IN.resolve("sub").resolve("broken.wav"), AudioTestFiles.pcmFile(0, 44100, 16, 4, 64));
+		Files.write(DIR_IN.resolve("notes.txt"), new byte[16]);
+
+		batch = new AudioBatch("bitcrush", DIR_IN.toString(), DIR_OUT.toString());
+		batch.setEffectParam(4);
+		batch.setJobs(2);
+		batch.setMetricsDirectory(DIR_METRICS.toString());
+
+		assertTrue(batch.run(), batch.getLastErrorMessage());
+		assertEquals(2, batch.getSucceededCount());
+		assertEquals(1, batch.getFailedCount());
+
+		assertEquals("", AudioTestFiles.run("bitcrush", DIR_IN.resolve("a.wav"), FILE_SINGLE, audioobj -> {}));
+		assertArrayEquals(Files.readAllBytes(FILE_SINGLE), Files.readAllBytes(DIR_OUT.resolve("a.wav")));
+
+		assertTrue(Files.isRegularFile(DIR_OUT.resolve("sub").resolve("b.WAV")));
+		assertFalse(Files.exists(DIR_OUT.resolve("notes.txt")));
+		assertTrue(Files.isRegularFile(DIR_METRICS.resolve("a.wav.json")));
+		assertTrue(Files.isRegularFile(DIR_METRICS.resolve("sub").resolve("b.WAV.json")));
+	}
+
+	@Test
+	void outputInsideInputRejected() throws Exception
+	{
+		final Path DIR_IN = this.dir.resolve("in");
+
+		AudioBatch batch = null;
+
+		Files.createDirectories(DIR_IN);
+		AudioTestFiles.generate(DIR_IN.resolve("a.wav"), 16, 2, 0);
+
+		batch = new AudioBatch("chswap", DIR_IN.toString(), DIR_IN.resolve("out").toString());
+
+		assertFalse(batch.run());
+		assertTrue(batch.getLastErrorMessage().contains("output directory must not be the input directory"));
+
+		batch = new AudioBatch("chswap", DIR_IN.toString(), DIR_IN.resolve(".").toString());
+
+		assertFalse(batch.run());
+		assertFalse(Files.exists(DIR_IN.resolve("out")));
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Block size tuner (AudioBufferTuner): tune() result and the per-host profile file.
+ */
+
+class AudioBufferTunerTest
+{
+	@TempDir
+	Path dir;
+
+	@Test
+	void tuneAndProfileRoundTrip() throws Exception
+	{
+		final Path FILE_PROFILE = this.dir.resolve("profile");
+		final int BUFFER_SIZE_MAX = AudioBufferTuner.getBufferSizes()[AudioBufferTuner.getBufferSizes().length - 1];
+
+		AudioBufferTuner tuner = new AudioBufferTuner(this.dir.resolve("work").toString());
+		Properties profile = new Properties();
+
+		profile.setProperty("otherhost.bufferSizeBytes", "4096");
+
+		try(Writer writer = Files.newBufferedWriter(FILE_PROFILE))
+		{
+			profile.store(writer, null);
+		}
+
+		tuner.setProfile(FILE_PROFILE.toString());
+		assertFalse(tuner.profileSave());
+
+		assertTrue(tuner.setTestSize(BUFFER_SIZE_MAX), tuner.getLastErrorMessage());
+		assertTrue(tuner.tune(), tuner.getLastErrorMessage());
+		assertTrue(Arrays.stream(AudioBufferTuner.getBufferSizes()).anyMatch(size -> (size == tuner.getBestSize())));
+
+		assertTrue(tuner.profileSave(), tuner.getLastErrorMessage());
+		assertEquals(tuner.getBestSize(), AudioBufferTuner.profileLoad(FILE_PROFILE.toString()));
+		assertEquals("4096", AudioBufferTuner.profileRead(FILE_PROFILE.toString()).getProperty("otherhost.bufferSizeBytes"));
+
+		/*No test files or temporary profiles left behind: only "work", the profile and its lock file.*/
+		try(Stream<Path> files = Files.list(this.dir.resolve("work")))
+		{
+			assertEquals(0L, files.count());
+		}
+
+		try(Stream<Path> files = Files.list(this.dir))
+		{
+			assertEquals(3L, files.count());
+		}
+	}
+
+	@Test
+	void profileMissingOrBroken() throws Exception
+	{
+		final Path FILE_PROFILE = this.dir.resolve("profile");
+
+		assertEquals(0, AudioBufferTuner.profileLoad(FILE_PROFILE.toString()));
+
+		Files.writeString(FILE_PROFILE, AudioBufferTuner.hostName() + ".bufferSizeBytes=abc\n");
+		assertEquals(0, AudioBufferTuner.profileLoad(FILE_PROFILE.toString()));
+	}
+}
@@ -0,0 +1,374 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+ * Every effect must write the same bytes whatever the engine mode: the reference is a serial run (one thread,
+ * no pipelining, mapped input, direct output), which is itself checked against the effect's definition.
+ * Inputs: 16-bit stereo and 24-bit 6-channel noise, both ending in a partial block.
+ */
+
+class AudioEffectsTest
+{
+	static final String[] EFFECTS = {"bitcrush", "reverse", "chswap", "chsub", "chain:chswap,bitcrush:4,chsub", "chain:reverse,chsub"};
+
+	@TempDir
+	static Path dir;
+
+	static Path fileI16;
+	static Path fileI24;
+
+	@BeforeAll
+	static void inputsCreate()
+	{
+		fileI16 = AudioTestFiles.generate(dir.resolve("i16.wav"), 16, 2, 0);
+		fileI24 = AudioTestFiles.generate(dir.resolve("i24.wav"), 24, 6, 0);
+	}
+
+	static String[] effects()
+	{
+		return EFFECTS;
+	}
+
+	static int[] bitDepths()
+	{
+		return new int[] {16, 24};
+	}
+
+	static Path input(int bitDepth)
+	{
+		return (bitDepth == 16) ? fileI16 : fileI24;
+	}
+
+	static Path output(String effect, int bitDepth, String mode)
+	{
+		return dir.resolve(effect.replace(':', '_').replace(',', '_') + "_" + bitDepth + "_" + mode + ".wav");
+	}
+
+	/*
+	 * Output of the serial run (made once per effect and input).
+	 */
+
+	static byte[] reference(String effect, int bitDepth) throws Exception
+	{
+		final Path FILE_OUT = output(effect, bitDepth, "serial");
+
+		if(!Files.isRegularFile(FILE_OUT)) assertEquals("", AudioTestFiles.run(effect, input(bitDepth), FILE_OUT, audioobj -> {}));
+
+		return Files.readAllBytes(FILE_OUT);
+	}
+
+	/*
+	 * Runs the effect over both inputs in the given engine mode, and compares the outputs with the serial ones.
+	 */
+
+	static void assertMatchesSerial(String effect, String mode, Consumer<AudioBaseClass> configure) throws Exception
+	{
+		for(int bitDepth : bitDepths())
+		{
+			assertEquals("", AudioTestFiles.run(effect, input(bitDepth), output(effect, bitDepth, mode), configure));
+			assertArrayEquals(reference(effect, bitDepth), Files.readAllBytes(output(effect, bitDepth, mode)), (effect + ", " + bitDepth + "-bit, " + mode));
+		}
+	}
+
+	/*
+	 * The serial reference itself, against the effect definitions (README), computed sample by sample.
+	 */
+
+	@ParameterizedTest(name = "{0}-bit")
+	@MethodSource("bitDepths")
+	void serialMatchesDefinition(int bitDepth) throws Exception
+	{
+		final int N_CHANNELS = (bitDepth == 16) ? 2 : 6;
+		final int SAMPLE_MAX = (bitDepth == 16) ? 0x7fff : 0x7fffff;
+		final int SAMPLE_MIN = (bitDepth == 16) ? -0x8000 : -0x800000;
+
+		int[] input = AudioTestFiles.samples(AudioTestFiles.audioData(Files.readAllBytes(input(bitDepth))), bitDepth);
+		int nFrames = input.length/N_CHANNELS;
+
+		int[] bitcrush = new int[input.length];
+		int[] reverse = new int[input.length];
+		int[] chswap = new int[input.length];
+		int[] chsub = new int[input.length];
+
+		int nFrame = 0;
+		int nChannel = 0;
+		int nSample = 0;
+		long monoSample = 0L;
+		long channelSample = 0L;
+
+		for(nFrame = 0; nFrame < nFrames; nFrame++)
+		{
+			monoSample = 0L;
+			for(nChannel = 0; nChannel < N_CHANNELS; nChannel++) monoSample += (long) input[nFrame*N_CHANNELS + nChannel];
+
+			for(nChannel = 0; nChannel < N_CHANNELS; nChannel++)
+			{
+				nSample = nFrame*N_CHANNELS + nChannel;
+
+				/*Level 4: the 4 lowest bits are cleared.*/
+				bitcrush[nSample] = input[nSample] & ~0xf;
+				reverse[nSample] = input[(nFrames - nFrame - 1)*N_CHANNELS + nChannel];
+				chswap[nSample] = input[nFrame*N_CHANNELS + (N_CHANNELS - nChannel - 1)];
+
+				channelSample = ((long) input[nSample])*((long) N_CHANNELS) - monoSample;
+				channelSample /= (long) N_CHANNELS;
+				chsub[nSample] = (int) Math.max(Math.min(channelSample, (long) SAMPLE_MAX), (long) SAMPLE_MIN);
+			}
+		}
+
+		assertArrayEquals(bitcrush, AudioTestFiles.samples(AudioTestFiles.audioData(reference("bitcrush", bitDepth)), bitDepth));
+		assertArrayEquals(reverse, AudioTestFiles.samples(AudioTestFiles.audioData(reference("reverse", bitDepth)), bitDepth));
+		assertArrayEquals(chswap, AudioTestFiles.samples(AudioTestFiles.audioData(reference("chswap", bitDepth)), bitDepth));
+		assertArrayEquals(chsub, AudioTestFiles.samples(AudioTestFiles.audioData(reference("chsub", bitDepth)), bitDepth));
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("effects")
+	void unmappedInputMatchesSerial(String effect) throws Exception
+	{
+		assertMatchesSerial(effect, "unmapped", audioobj -> audioobj.setInputMapping(false));
+	}
+
+	/*
+	 * Temporary file runs (no direct output) must not pad the output to whole blocks.
+	 */
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("effects")
+	void tempFileMatchesSerial(String effect) throws Exception
+	{
+		assertMatchesSerial(effect, "tempfile", audioobj -> audioobj.setDirectOutput(false));
+	}
+
+	static String[] effectsForward()
+	{
+		return new String[] {"bitcrush", "chswap", "chsub", "chain:chswap,bitcrush:4,chsub"};
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("effectsForward")
+	void parallelMatchesSerial(String effect) throws Exception
+	{
+		assertMatchesSerial(effect, "parallel", audioobj -> audioobj.setParallelism(4));
+	}
+
+	static String[] effectsBackward()
+	{
+		return new String[] {"reverse", "chain:reverse,chsub"};
+	}
+
+	/*
+	 * Backward effects: segments in reverse order, mirrored output offsets, with and without input mapping.
+	 */
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("effectsBackward")
+	void parallelBackwardMatchesSerial(String effect) throws Exception
+	{
+		assertMatchesSerial(effect, "parallel", audioobj -> audioobj.setParallelism(4));
+		assertMatchesSerial(effect, "parallel_unmapped", audioobj -> {
+			audioobj.setParallelism(4);
+			audioobj.setInputMapping(false);
+		});
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("effects")
+	void pipelinedMatchesSerial(String effect) throws Exception
+	{
+		assertMatchesSerial(effect, "pipelined", audioobj -> audioobj.setPipelining(true));
+	}
+
+	/*
+	 * A chain must write the same bytes as its effects run one after another, through intermediate files.
+	 */
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("chains")
+	void chainMatchesSeparateRuns(String effect) throws Exception
+	{
+		final String[] STAGES = effect.substring(6).split(",");
+
+		Path fileIn = null;
+		Path fileOut = null;
+		int nStage = 0;
+
+		for(int bitDepth : bitDepths())
+		{
+			fileIn = input(bitDepth);
+
+			for(nStage = 0; nStage < STAGES.length; nStage++)
+			{
+				fileOut = output(effect, bitDepth, ("stage" + nStage));
+				assertEquals("", AudioTestFiles.run(STAGES[nStage].replace(":4", ""), fileIn, fileOut, audioobj -> {}));
+				fileIn = fileOut;
+			}
+
+			assertArrayEquals(Files.readAllBytes(fileOut), reference(effect, bitDepth), (effect + ", " + bitDepth + "-bit"));
+		}
+	}
+
+	static String[] chains()
+	{
+		return new String[] {"chain:chswap,bitcrush:4,chsub", "chain:reverse,chsub"};
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@ValueSource(strings = {"reverse:3", "chswap:x", "chsub:1,bitcrush:4", "bitcrush:x", "chswap,echo"})
+	void chainSpecRejected(String chainSpec)
+	{
+		AudioChain chain = new AudioChain(fileI16.toString(), output("chain", 16, "rejected").toString());
+
+		assertFalse(chain.setChain(chainSpec));
+		/*Before initialize(), getLastErrorMessage() reports the status: check the message itself.*/
+		assertTrue(chain.errMsg.startsWith("AudioChain.setChain: Error:"), chain.errMsg);
+	}
+
+	/*
+	 * Vector API kernels (only when built with -Psimd and run with the module): same results as the scalar loops,
+	 * for every channel count up to 16 and both clamp ranges.
+	 */
+
+	@Test
+	void simdKernelsMatchScalar()
+	{
+		final Random RANDOM = new Random(7L);
+		final int N_FRAMES = 1001;
+		final int[] SAMPLE_MAX = {0x7fff, 0x7fffff};
+
+		int[] input = null;
+		int[] expected = null;
+		int[] actual = null;
+		int nChannels = 0;
+		int nSample = 0;
+
+		assumeTrue(AudioBaseClass.SIMD_KERNELS != null, "Vector API kernels are not loaded");
+
+		assertTrue(AudioBaseClass.SIMD_KERNELS.channelSubtract(new int[16], 8, 2, 0x7fff, -0x8000));
+		assertFalse(AudioBaseClass.SIMD_KERNELS.channelSubtract(new int[18], 3, 6, 0x7fff, -0x8000));
+
+		for(int sampleMax : SAMPLE_MAX)
+		{
+			for(nChannels = 1; nChannels <= 16; nChannels++)
+			{
+				input = new int[N_FRAMES*nChannels];
+				for(nSample = 0; nSample < input.length; nSample++) input[nSample] = RANDOM.nextInt(2*(sampleMax + 1)) - (sampleMax + 1);
+
+				expected = input.clone();
+				for(nSample = 0; nSample < expected.length; nSample++) expected[nSample] &= ~0xf;
+
+				actual = input.clone();
+				AudioBaseClass.SIMD_KERNELS.bitCrush(actual, actual.length, 0xf);
+				assertArrayEquals(expected, actual);
+
+				expected = channelSubtract(input, N_FRAMES, nChannels, sampleMax, -(sampleMax + 1));
+
+				/*Channel counts without a vector version must be left to the scalar kernel untouched.*/
+				actual = input.clone();
+				if(!AudioBaseClass.SIMD_KERNELS.channelSubtract(actual, N_FRAMES, nChannels, sampleMax, -(sampleMax + 1))) expected = input;
+				assertArrayEquals(expected, actual, (nChannels + " channels"));
+			}
+		}
+	}
+
+	static int[] channelSubtract(int[] input, int nFrames, int nChannels, int sampleMax, int sampleMin)
+	{
+		int[] output = new int[input.length];
+		int nFrame = 0;
+		int nChannel = 0;
+		int monoSample = 0;
+		int channelSample = 0;
+
+		for(nFrame = 0; nFrame < nFrames; nFrame++)
+		{
+			monoSample = 0;
+			for(nChannel = 0; nChannel < nChannels; nChannel++) monoSample += input[nFrame*nChannels + nChannel];
+
+			for(nChannel = 0; nChannel < nChannels; nChannel++)
+			{
+				channelSample = (input[nFrame*nChannels + nChannel]*nChannels - monoSample)/nChannels;
+				output[nFrame*nChannels + nChannel] = Math.max(Math.min(channelSample, sampleMax), sampleMin);
+			}
+		}
+
+		return output;
+	}
+
+	/*
+	 * RF64 input: same output as the same audio data in a RIFF file.
+	 */
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("effects")
+	void rf64InputMatchesRiff(String effect) throws Exception
+	{
+		final Path FILE_IN = dir.resolve("i24_rf64_" + effect.replace(':', '_').replace(',', '_') + ".wav");
+		final Path FILE_OUT = output(effect, 24, "rf64");
+
+		Files.write(FILE_IN, AudioTestFiles.toRf64(Files.readAllBytes(fileI24)));
+
+		assertEquals("", AudioTestFiles.run(effect, FILE_IN, FILE_OUT, audioobj -> {}));
+		assertArrayEquals(reference(effect, 24), Files.readAllBytes(FILE_OUT));
+	}
+
+	/*
+	 * RF64 output (forced, files this small never need it): same audio data as the RIFF output, and readable again.
+	 */
+
+	@Test
+	void rf64OutputKeepsAudioData() throws Exception
+	{
+		final Path FILE_OUT = output("chsub", 16, "rf64out");
+
+		AudioChannelSubtract audioobj = new AudioChannelSubtract(fileI16.toString(), FILE_OUT.toString())
+		{
+			@Override
+			protected boolean headerNeedsRf64(long audioDataSize, int extraChunksSize)
+			{
+				return true;
+			}
+		};
+
+		byte[] output = null;
+		AudioReverse reader = null;
+
+		assertEquals("", AudioTestFiles.run(audioobj, "chsub", configure -> {}));
+
+		output = Files.readAllBytes(FILE_OUT);
+
+		assertEquals("RF64", new String(output, 0, 4, StandardCharsets.US_ASCII));
+		assertArrayEquals(AudioTestFiles.audioData(reference("chsub", 16)), AudioTestFiles.audioData(output));
+
+		reader = new AudioReverse(FILE_OUT.toString(), output("reverse", 16, "unused").toString());
+		reader.setInteractive(false);
+
+		assertTrue(reader.initialize(), reader.getLastErrorMessage());
+		assertEquals(2, reader.getNumberChannels());
+		assertEquals(16, reader.getBitDepth());
+		reader.deinitialize();
+	}
+}
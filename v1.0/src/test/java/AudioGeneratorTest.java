@@ -0,0 +1,98 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Test file generator (AudioGenerator): the same seed must always give the same file.
+ */
+
+class AudioGeneratorTest
+{
+	@TempDir
+	Path dir;
+
+	byte[] generate(String fileName, AudioGenerator.Signals signal, long seed) throws Exception
+	{
+		final Path FILE = this.dir.resolve(fileName);
+
+		AudioGenerator generator = new AudioGenerator(FILE.toString());
+
+		generator.setInteractive(false);
+		assertTrue(generator.setFormat(48000, 24, 2));
+		assertTrue(generator.setDuration(0.25));
+		generator.setSignal(signal);
+		generator.setSeed(seed);
+
+		assertTrue(generator.initialize(), generator.getLastErrorMessage());
+		assertTrue(generator.runDSP(), generator.getLastErrorMessage());
+		generator.deinitialize();
+
+		return Files.readAllBytes(FILE);
+	}
+
+	@Test
+	void sameSeedSameFile() throws Exception
+	{
+		for(AudioGenerator.Signals signal : AudioGenerator.Signals.values())
+			assertArrayEquals(this.generate("a.wav", signal, 11L), this.generate("b.wav", signal, 11L), signal.name());
+	}
+
+	@Test
+	void otherSeedOtherNoise() throws Exception
+	{
+		final byte[] WAV_A = this.generate("a.wav", AudioGenerator.Signals.NOISE, 11L);
+		final byte[] WAV_B = this.generate("b.wav", AudioGenerator.Signals.NOISE, 12L);
+
+		assertEquals(WAV_A.length, WAV_B.length);
+		assertFalse(Arrays.equals(AudioTestFiles.audioData(WAV_A), AudioTestFiles.audioData(WAV_B)));
+	}
+
+	@Test
+	void listChunkAndPartialBlock() throws Exception
+	{
+		final byte[] WAV = Files.readAllBytes(AudioTestFiles.generate(this.dir.resolve("list.wav"), 16, 6, 100));
+		final int LIST_BEGIN = AudioTestFiles.chunkFind(WAV, "LIST");
+		final int DATA_BEGIN = AudioTestFiles.chunkFind(WAV, "data");
+
+		AudioChannelSwap reader = new AudioChannelSwap(this.dir.resolve("list.wav").toString(), this.dir.resolve("unused.wav").toString());
+		long nFrames = 0L;
+
+		assertTrue(LIST_BEGIN > 0);
+		assertTrue(LIST_BEGIN < DATA_BEGIN);
+
+		reader.setInteractive(false);
+		assertTrue(reader.initialize(), reader.errMsg);
+
+		nFrames = AudioTestFiles.audioData(WAV).length/(6*2);
+		assertNotEquals(0L, (nFrames%reader.bufferSizeFrames));
+		reader.deinitialize();
+	}
+
+	@Test
+	void corpusComplete()
+	{
+		final Path DIR_CORPUS = this.dir.resolve("corpus");
+
+		assertEquals(0, AudioGenerator.corpusCreate(DIR_CORPUS.toString(), 8000, 0.1, 1L));
+		assertTrue(Files.isRegularFile(DIR_CORPUS.resolve("noise_i24_6ch.wav")));
+		assertTrue(Files.isRegularFile(DIR_CORPUS.resolve("list_i16_1ch.wav")));
+		assertTrue(Files.isRegularFile(DIR_CORPUS.resolve("partial_i16_2ch.wav")));
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Header parsing edge cases (AudioBaseClass.initialize()).
+ */
+
+class AudioHeaderTest
+{
+	@TempDir
+	Path dir;
+
+	AudioBaseClass reader(Path file)
+	{
+		AudioBaseClass reader = new AudioChannelSwap(file.toString(), this.dir.resolve("unused.wav").toString());
+
+		reader.setInteractive(false);
+		return reader;
+	}
+
+	@Test
+	void rf64Read() throws Exception
+	{
+		final Path FILE_RIFF = AudioTestFiles.generate(this.dir.resolve("riff.wav"), 24, 6, 0);
+		final Path FILE_RF64 = this.dir.resolve("rf64.wav");
+
+		AudioMetadataIndex.Entry riff = null;
+		AudioMetadataIndex.Entry rf64 = null;
+
+		Files.write(FILE_RF64, AudioTestFiles.toRf64(Files.readAllBytes(FILE_RIFF)));
+
+		riff = new AudioMetadataIndex.HeaderReader(FILE_RIFF.toString()).read(FILE_RIFF.toString(), 0L, 0L);
+		rf64 = new AudioMetadataIndex.HeaderReader(FILE_RF64.toString()).read(FILE_RF64.toString(), 0L, 0L);
+
+		assertTrue(rf64.isValid(), rf64.error);
+		assertEquals(riff.format, rf64.format);
+		assertEquals(riff.sampleRate, rf64.sampleRate);
+		assertEquals(riff.nChannels, rf64.nChannels);
+		assertEquals(riff.channelMask, rf64.channelMask);
+		assertEquals(riff.dataSize, rf64.dataSize);
+		assertEquals((riff.dataOffset + 36L), rf64.dataOffset);
+	}
+
+	/*
+	 * A "LIST" chunk between "fmt " and "data" is skipped: same parameters and the same output as without it.
+	 */
+
+	@Test
+	void listChunkBeforeData() throws Exception
+	{
+		final Path FILE_PLAIN = AudioTestFiles.generate(this.dir.resolve("plain.wav"), 16, 2, 0);
+		final Path FILE_LIST = AudioTestFiles.generate(this.dir.resolve("list.wav"), 16, 2, 301);
+		final Path OUT_PLAIN = this.dir.resolve("plain_out.wav");
+		final Path OUT_LIST = this.dir.resolve("list_out.wav");
+
+		AudioBaseClass reader = null;
+
+		assertTrue(AudioTestFiles.chunkFind(Files.readAllBytes(FILE_LIST), "LIST") >= 0);
+
+		reader = this.reader(FILE_LIST);
+		assertTrue(reader.initialize(), reader.getLastErrorMessage());
+		assertEquals(44100, reader.getSampleRate());
+		assertEquals(16, reader.getBitDepth());
+		assertEquals(2, reader.getNumberChannels());
+		reader.deinitialize();
+
+		assertEquals("", AudioTestFiles.run("chswap", FILE_PLAIN, OUT_PLAIN, audioobj -> {}));
+		assertEquals("", AudioTestFiles.run("chswap", FILE_LIST, OUT_LIST, audioobj -> {}));
+		assertArrayEquals(Files.readAllBytes(OUT_PLAIN), Files.readAllBytes(OUT_LIST));
+	}
+
+	/*
+	 * A "fmt " chunk with 0 channels used to reach a division by zero in initialize().
+	 */
+
+	@Test
+	void zeroChannelsRejected() throws Exception
+	{
+		final Path FILE = this.dir.resolve("zero_channels.wav");
+
+		AudioBaseClass reader = null;
+
+		Files.write(FILE, AudioTestFiles.pcmFile(0, 44100, 16, 0, 4096));
+
+		reader = this.reader(FILE);
+		assertFalse(reader.initialize());
+		assertEquals(AudioBaseClass.Status.ERROR_BROKENHEADER, reader.status);
+		reader.deinitialize();
+	}
+
+	@Test
+	void blockAlignMismatchRejected() throws Exception
+	{
+		final Path FILE = this.dir.resolve("block_align.wav");
+
+		AudioBaseClass reader = null;
+
+		Files.write(FILE, AudioTestFiles.pcmFile(2, 44100, 16, 3, 4096));
+
+		reader = this.reader(FILE);
+		assertFalse(reader.initialize());
+		assertEquals(AudioBaseClass.Status.ERROR_BROKENHEADER, reader.status);
+		reader.deinitialize();
+	}
+
+	@Test
+	void eightBitRejected() throws Exception
+	{
+		final Path FILE = this.dir.resolve("u8.wav");
+
+		AudioBaseClass reader = null;
+
+		Files.write(FILE, AudioTestFiles.pcmFile(2, 44100, 8, 2, 4096));
+
+		reader = this.reader(FILE);
+		assertFalse(reader.initialize());
+		assertEquals(AudioBaseClass.Status.ERROR_FORMATNOTSUPPORTED, reader.status);
+		reader.deinitialize();
+	}
+}
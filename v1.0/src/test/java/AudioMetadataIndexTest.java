@@ -0,0 +1,144 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Metadata index (AudioMetadataIndex, -index): header fields, incremental rescans, index file round trip.
+ */
+
+class AudioMetadataIndexTest
+{
+	@TempDir
+	Path dir;
+
+	static void assertSameEntry(AudioMetadataIndex.Entry expected, AudioMetadataIndex.Entry entry)
+	{
+		assertNotNull(entry, expected.path);
+		assertEquals(expected.path, entry.path);
+		assertEquals(expected.modified, entry.modified);
+		assertEquals(expected.size, entry.size);
+		assertEquals(expected.format, entry.format);
+		assertEquals(expected.sampleRate, entry.sampleRate);
+		assertEquals(expected.bitDepth, entry.bitDepth);
+		assertEquals(expected.nChannels, entry.nChannels);
+		assertEquals(expected.channelMask, entry.channelMask);
+		assertEquals(expected.dataOffset, entry.dataOffset);
+		assertEquals(expected.dataSize, entry.dataSize);
+		assertEquals(expected.error, entry.error);
+	}
+
+	@Test
+	void scanSaveLoad() throws Exception
+	{
+		final Path DIR_LIB = this.dir.resolve("lib");
+		final Path FILE_INDEX = this.dir.resolve("index");
+		final Path FILE_A = DIR_LIB.resolve("a.wav");
+		final Path FILE_B = DIR_LIB.resolve("sub").resolve("b.wav");
+		final Path FILE_BROKEN = DIR_LIB.resolve("broken.wav");
+
+		AudioMetadataIndex index = new AudioMetadataIndex(FILE_INDEX.toString());
+		AudioMetadataIndex loaded = new AudioMetadataIndex(FILE_INDEX.toString());
+		AudioMetadataIndex.Entry entry = null;
+
+		Files.createDirectories(FILE_B.getParent());
+		AudioTestFiles.generate(FILE_A, 16, 2, 0);
+		AudioTestFiles.generate(FILE_B, 24, 6, 100);
+		Files.write(FILE_BROKEN, AudioTestFiles.pcmFile(0, 44100, 16, 4, 64));
+		Files.write(DIR_LIB.resolve("notes.txt"), new byte[16]);
+
+		assertTrue(index.load(), index.getLastErrorMessage());
+		assertTrue(index.scan(DIR_LIB.toString()), index.getLastErrorMessage());
+		assertEquals(3, index.getParsedCount());
+		assertEquals(3, index.getEntries().size());
+
+		entry = index.get(FILE_B);
+		assertTrue(entry.isValid(), entry.error);
+		assertEquals(44100, entry.sampleRate);
+		assertEquals(24, entry.bitDepth);
+		assertEquals(6, entry.nChannels);
+		assertEquals(AudioTestFiles.audioData(Files.readAllBytes(FILE_B)).length, entry.dataSize);
+		assertEquals((entry.dataSize/18L), entry.getFrames());
+
+		entry = index.get(FILE_BROKEN);
+		assertFalse(entry.isValid());
+		assertEquals(0L, entry.getFrames());
+		assertEquals(0.0, entry.getSeconds());
+
+		assertTrue(index.save(), index.getLastErrorMessage());
+		assertTrue(loaded.load(), loaded.getLastErrorMessage());
+		assertEquals(3, loaded.getEntries().size());
+
+		for(AudioMetadataIndex.Entry expected : index.getEntries()) assertSameEntry(expected, loaded.get(Path.of(expected.path)));
+
+		/*Rescan: only the changed file is parsed again, and the deleted one is dropped.*/
+		Files.setLastModifiedTime(FILE_A, FileTime.fromMillis(Files.getLastModifiedTime(FILE_A).toMillis() + 2000L));
+		Files.delete(FILE_BROKEN);
+
+		assertTrue(loaded.scan(DIR_LIB.toString()), loaded.getLastErrorMessage());
+		assertEquals(1, loaded.getParsedCount());
+		assertEquals(1, loaded.getUnchangedCount());
+		assertEquals(2, loaded.getEntries().size());
+		assertNull(loaded.get(FILE_BROKEN));
+	}
+
+	/*
+	 * Entries of other directories are kept, even of one whose name starts with the scanned one.
+	 */
+
+	@Test
+	void scanKeepsOtherDirectories() throws Exception
+	{
+		final Path FILE_A = this.dir.resolve("lib").resolve("a.wav");
+		final Path FILE_B = this.dir.resolve("lib2").resolve("b.wav");
+
+		AudioMetadataIndex index = new AudioMetadataIndex(this.dir.resolve("index").toString());
+
+		Files.createDirectories(FILE_A.getParent());
+		Files.createDirectories(FILE_B.getParent());
+		AudioTestFiles.generate(FILE_A, 16, 2, 0);
+		AudioTestFiles.generate(FILE_B, 16, 2, 0);
+
+		assertTrue(index.scan(FILE_B.getParent().toString()), index.getLastErrorMessage());
+		assertTrue(index.scan(FILE_A.getParent().toString()), index.getLastErrorMessage());
+
+		assertNotNull(index.get(FILE_A));
+		assertNotNull(index.get(FILE_B));
+	}
+
+	@Test
+	void damagedIndexDropped() throws Exception
+	{
+		final Path FILE_INDEX = this.dir.resolve("index");
+
+		AudioMetadataIndex index = new AudioMetadataIndex(FILE_INDEX.toString());
+
+		/*Other index version: dropped silently.*/
+		Files.write(FILE_INDEX, new byte[] {'A', 'F', 'X', 'I', 0, 0, 0, 9, 0, 0, 0, 0});
+
+		assertTrue(index.load());
+		assertTrue(index.getEntries().isEmpty());
+
+		/*Truncated.*/
+		Files.write(FILE_INDEX, new byte[] {'A', 'F', 'X', 'I', 0, 0, 0, 1, 0, 0, 0, 5, 0});
+
+		assertFalse(index.load());
+		assertTrue(index.getEntries().isEmpty());
+	}
+}
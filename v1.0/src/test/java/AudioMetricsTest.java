@@ -0,0 +1,82 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+ * Job metrics (AudioMetrics) and the JSON report (-metrics).
+ */
+
+class AudioMetricsTest
+{
+	@TempDir
+	Path dir;
+
+	/*
+	 * Every engine mode counts each byte of audio data read exactly once, and every frame.
+	 */
+
+	@ParameterizedTest
+	@ValueSource(strings = {"serial", "unmapped", "parallel", "pipelined"})
+	void bytesAndFramesCounted(String mode) throws Exception
+	{
+		final Path FILE_IN = AudioTestFiles.generate(this.dir.resolve("in.wav"), 24, 6, 0);
+		final long DATA_SIZE = AudioTestFiles.audioData(Files.readAllBytes(FILE_IN)).length;
+
+		AudioBaseClass audioobj = AudioTestFiles.createEffect("chswap", FILE_IN, this.dir.resolve("out.wav"));
+
+		assertEquals("", AudioTestFiles.run(audioobj, "chswap", job -> {
+			job.setInputMapping(!mode.equals("unmapped"));
+			job.setParallelism(mode.equals("parallel") ? 4 : 1);
+			job.setPipelining(mode.equals("pipelined"));
+		}));
+
+		assertEquals(DATA_SIZE, audioobj.getMetrics().getBytes(AudioMetrics.Stages.READ));
+		assertEquals((DATA_SIZE/(6*3)), audioobj.getMetrics().getFrames());
+		assertTrue(audioobj.getMetrics().getWallNanos() > 0L);
+	}
+
+	@Test
+	void reportWritten() throws Exception
+	{
+		final Path FILE_IN = AudioTestFiles.generate(this.dir.resolve("in \"1\".wav"), 16, 2, 0);
+		final Path FILE_REPORT = this.dir.resolve("reports").resolve("in.json");
+		final long DATA_SIZE = AudioTestFiles.audioData(Files.readAllBytes(FILE_IN)).length;
+
+		String report = "";
+
+		assertEquals("", AudioTestFiles.run("chswap", FILE_IN, this.dir.resolve("out.wav"), job -> job.setMetricsReport(FILE_REPORT.toString())));
+
+		report = Files.readString(FILE_REPORT);
+
+		assertTrue(report.startsWith("{\n") && report.endsWith("}\n"), report);
+		assertTrue(report.contains("\t\"effect\": \"AudioChannelSwap\",\n"), report);
+		assertTrue(report.contains("\t\"input\": " + AudioMetrics.jsonString(FILE_IN.toString()) + ",\n"), report);
+		assertTrue(report.contains("in \\\"1\\\".wav"), report);
+		assertTrue(report.contains("\t\"channels\": 2,\n"), report);
+		assertTrue(report.contains("\t\"frames\": " + (DATA_SIZE/4) + ",\n"), report);
+		assertTrue(report.contains("\t\t\"read\": {\"nanos\": "), report);
+		assertTrue(report.contains("\"bytes\": " + DATA_SIZE + ", "), report);
+		assertTrue(report.contains("\t\"cacheHit\": false,\n"), report);
+	}
+
+	@Test
+	void jsonStringEscaped()
+	{
+		assertEquals("\"a\\\"b\\\\c\\u000ad\"", AudioMetrics.jsonString("a\"b\\c\nd"));
+	}
+}
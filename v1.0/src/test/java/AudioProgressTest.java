@@ -0,0 +1,108 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+ * Progress callback and cancellation (setProgressListener(), cancel()).
+ */
+
+class AudioProgressTest
+{
+	@TempDir
+	Path dir;
+
+	static Consumer<AudioBaseClass> mode(String mode)
+	{
+		return audioobj -> {
+			audioobj.setParallelism(mode.equals("parallel") ? 4 : 1);
+			audioobj.setPipelining(mode.equals("pipelined"));
+			audioobj.setDirectOutput(!mode.equals("tempfile"));
+		};
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"serial", "parallel", "pipelined", "tempfile"})
+	void progressEndsAtTotal(String mode) throws Exception
+	{
+		final Path FILE_IN = AudioTestFiles.generate(this.dir.resolve("in.wav"), 16, 2, 0);
+		final long DATA_SIZE = AudioTestFiles.audioData(Files.readAllBytes(FILE_IN)).length;
+		final List<long[]> CALLS = new ArrayList<>();
+
+		assertEquals("", AudioTestFiles.run("reverse", FILE_IN, this.dir.resolve("out.wav"), mode(mode).andThen(audioobj ->
+			audioobj.setProgressListener((job, bytesProcessed, bytesTotal) -> CALLS.add(new long[] {bytesProcessed, bytesTotal})))));
+
+		assertFalse(CALLS.isEmpty());
+
+		for(long[] call : CALLS)
+		{
+			assertEquals(DATA_SIZE, call[1]);
+			assertTrue((call[0] >= 0L) && (call[0] <= DATA_SIZE));
+		}
+
+		assertEquals(DATA_SIZE, CALLS.get(CALLS.size() - 1)[0]);
+	}
+
+	/*
+	 * A listener that returns false cancels the job: runDSP() fails and no output is left behind.
+	 */
+
+	@ParameterizedTest
+	@ValueSource(strings = {"serial", "parallel", "pipelined", "tempfile"})
+	void listenerCancels(String mode) throws Exception
+	{
+		final Path FILE_IN = AudioTestFiles.generate(this.dir.resolve("in.wav"), 24, 6, 0);
+		final Path FILE_OUT = this.dir.resolve("out.wav");
+
+		AudioBaseClass audioobj = AudioTestFiles.createEffect("chswap", FILE_IN, FILE_OUT);
+		String errMsg = "";
+
+		errMsg = AudioTestFiles.run(audioobj, "chswap", mode(mode).andThen(job -> job.setProgressListener((self, bytesProcessed, bytesTotal) -> false)));
+
+		assertTrue(errMsg.contains("job cancelled"), errMsg);
+		assertTrue(audioobj.isCancelled());
+		assertFalse(Files.exists(FILE_OUT));
+
+		try(Stream<Path> files = Files.list(this.dir))
+		{
+			assertEquals(1L, files.count());
+		}
+	}
+
+	@Test
+	void cancelBeforeRun() throws Exception
+	{
+		final Path FILE_IN = AudioTestFiles.generate(this.dir.resolve("in.wav"), 16, 2, 0);
+		final Path FILE_OUT = this.dir.resolve("out.wav");
+
+		AudioBaseClass audioobj = AudioTestFiles.createEffect("chswap", FILE_IN, FILE_OUT);
+
+		audioobj.setInteractive(false);
+		assertTrue(audioobj.initialize(), audioobj.errMsg);
+
+		audioobj.cancel();
+
+		assertFalse(audioobj.runDSP());
+		assertFalse(Files.exists(FILE_OUT));
+		audioobj.deinitialize();
+	}
+}
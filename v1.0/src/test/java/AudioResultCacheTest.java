@@ -0,0 +1,165 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Result cache (AudioResultCache, -cache): hits, keys, eviction, and failed jobs never stored.
+ */
+
+class AudioResultCacheTest
+{
+	@TempDir
+	Path dir;
+
+	Path fileIn = null;
+	AudioResultCache cache = null;
+
+	@BeforeEach
+	void setUp()
+	{
+		this.fileIn = AudioTestFiles.generate(this.dir.resolve("in.wav"), 24, 6, 0);
+		this.cache = new AudioResultCache(this.dir.resolve("cache").toString());
+
+		assertTrue(this.cache.initialize(), this.cache.getLastErrorMessage());
+	}
+
+	long entries() throws Exception
+	{
+		try(Stream<Path> files = Files.list(this.dir.resolve("cache")))
+		{
+			return files.filter(file -> file.getFileName().toString().endsWith(".wav")).count();
+		}
+	}
+
+	String key(AudioBaseClass audioobj)
+	{
+		return this.key(audioobj, 0);
+	}
+
+	/*
+	 * Key of the job once initialized; "cutoff" is the bit crush level, for AudioBitCrush.
+	 */
+
+	String key(AudioBaseClass audioobj, int cutoff)
+	{
+		String key = null;
+
+		audioobj.setInteractive(false);
+		assertTrue(audioobj.initialize(), audioobj.errMsg);
+
+		if(audioobj instanceof AudioBitCrush) assertTrue(((AudioBitCrush) audioobj).setCutoff(cutoff));
+
+		key = this.cache.key(audioobj);
+		audioobj.deinitialize();
+
+		assertNotNull(key, this.cache.getLastErrorMessage());
+		return key;
+	}
+
+	@Test
+	void secondRunHits() throws Exception
+	{
+		final Path FILE_MISS = this.dir.resolve("miss.wav");
+		final Path FILE_HIT = this.dir.resolve("hit.wav");
+
+		AudioBaseClass miss = AudioTestFiles.createEffect("bitcrush", this.fileIn, FILE_MISS);
+		AudioBaseClass hit = AudioTestFiles.createEffect("bitcrush", this.fileIn, FILE_HIT);
+
+		assertEquals("", AudioTestFiles.run(miss, "bitcrush", audioobj -> audioobj.setResultCache(this.cache)));
+		assertFalse(miss.getResultCacheHit());
+		assertEquals(1L, this.entries());
+
+		/*Temporary-file output: same output as direct output, so the same key.*/
+		assertEquals("", AudioTestFiles.run(hit, "bitcrush", audioobj -> {
+			audioobj.setResultCache(this.cache);
+			audioobj.setDirectOutput(false);
+		}));
+		assertTrue(hit.getResultCacheHit());
+
+		assertArrayEquals(Files.readAllBytes(FILE_MISS), Files.readAllBytes(FILE_HIT));
+		assertTrue(Files.isWritable(FILE_HIT));
+		assertEquals(1L, this.entries());
+	}
+
+	@Test
+	void keyDependsOnEffectAndParams()
+	{
+		final Path FILE_OUT = this.dir.resolve("out.wav");
+
+		assertNotEquals(this.key(new AudioBitCrush(this.fileIn.toString(), FILE_OUT.toString()), 4), this.key(new AudioBitCrush(this.fileIn.toString(), FILE_OUT.toString()), 5));
+		assertNotEquals(this.key(new AudioChannelSwap(this.fileIn.toString(), FILE_OUT.toString())), this.key(new AudioChannelSubtract(this.fileIn.toString(), FILE_OUT.toString())));
+		assertEquals(this.key(new AudioChannelSwap(this.fileIn.toString(), FILE_OUT.toString())), this.key(new AudioChannelSwap(this.fileIn.toString(), this.dir.resolve("other.wav").toString())));
+	}
+
+	@Test
+	void leastRecentlyUsedEvicted() throws Exception
+	{
+		final long FILE_SIZE = Files.size(this.fileIn);
+
+		AudioResultCache small = new AudioResultCache(this.dir.resolve("cache").toString(), (FILE_SIZE + FILE_SIZE/2));
+
+		assertEquals("", AudioTestFiles.run("chswap", this.fileIn, this.dir.resolve("a.wav"), audioobj -> audioobj.setResultCache(small)));
+		assertEquals("", AudioTestFiles.run("reverse", this.fileIn, this.dir.resolve("b.wav"), audioobj -> audioobj.setResultCache(small)));
+
+		assertEquals(1L, this.entries());
+		assertTrue(small.fetch(this.key(new AudioReverse(this.fileIn.toString(), this.dir.resolve("c.wav").toString())), this.dir.resolve("c.wav").toString()));
+	}
+
+	/*
+	 * A job that fails after its output was (partly) written must not leave that output in the cache.
+	 */
+
+	@Test
+	void failedRunNotStored() throws Exception
+	{
+		final Path FILE_OUT = this.dir.resolve("out.wav");
+
+		AudioChannelSwap failing = new AudioChannelSwap(this.fileIn.toString(), FILE_OUT.toString())
+		{
+			@Override
+			protected boolean rawToWavProcLoop()
+			{
+				try
+				{
+					this.fileOut.close();
+				}
+				catch(Exception e)
+				{
+					return false;
+				}
+
+				return super.rawToWavProcLoop();
+			}
+		};
+
+		String errMsg = AudioTestFiles.run(failing, "chswap", audioobj -> {
+			audioobj.setResultCache(this.cache);
+			audioobj.setDirectOutput(false);
+		});
+
+		assertTrue(errMsg.contains("write failed"), errMsg);
+		assertEquals(0L, this.entries());
+
+		assertEquals("", AudioTestFiles.run("chswap", this.fileIn, FILE_OUT, audioobj -> audioobj.setResultCache(this.cache)));
+		assertEquals(1L, this.entries());
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/*
+ * Stream mode (runStream(), the "-" pipe arguments): same audio data as a file run.
+ */
+
+class AudioStreamTest
+{
+	@TempDir
+	Path dir;
+
+	byte[] stream(String effect, byte[] wav)
+	{
+		final ByteArrayOutputStream OUTPUT = new ByteArrayOutputStream();
+
+		AudioBaseClass audioobj = AudioBatch.createEffect(effect, "-", "-");
+
+		audioobj.setInteractive(false);
+		assertTrue(audioobj.runStream(new ByteArrayInputStream(wav), OUTPUT), audioobj.errMsg);
+
+		return OUTPUT.toByteArray();
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 100})
+	void streamMatchesFile(int listChunkSize) throws Exception
+	{
+		final Path FILE_IN = AudioTestFiles.generate(this.dir.resolve("in.wav"), 24, 6, listChunkSize);
+		final Path FILE_OUT = this.dir.resolve("out.wav");
+
+		assertTrue(AudioTestFiles.run("chswap", FILE_IN, FILE_OUT, audioobj -> {}).isEmpty());
+
+		assertArrayEquals(AudioTestFiles.audioData(Files.readAllBytes(FILE_OUT)), AudioTestFiles.audioData(this.stream("chswap", Files.readAllBytes(FILE_IN))));
+	}
+
+	/*
+	 * Writers that cannot seek back leave the data size at 0xFFFFFFFF or 0: the audio data runs to the end of the stream.
+	 */
+
+	@ParameterizedTest
+	@ValueSource(ints = {0xffffffff, 0})
+	void unknownDataSizeReadsToEnd(int dataSize) throws Exception
+	{
+		final Path FILE_IN = AudioTestFiles.generate(this.dir.resolve("in.wav"), 16, 2, 0);
+		final Path FILE_OUT = this.dir.resolve("out.wav");
+		final byte[] WAV = Files.readAllBytes(FILE_IN);
+		final int DATA_BEGIN = AudioTestFiles.chunkFind(WAV, "data");
+
+		byte[] output = null;
+		int outputDataBegin = 0;
+
+		assertTrue(AudioTestFiles.run("chswap", FILE_IN, FILE_OUT, audioobj -> {}).isEmpty());
+
+		ByteBuffer.wrap(WAV).order(ByteOrder.LITTLE_ENDIAN).putInt((DATA_BEGIN - 4), dataSize);
+		output = this.stream("chswap", WAV);
+		outputDataBegin = AudioTestFiles.chunkFind(output, "data");
+
+		assertArrayEquals(AudioTestFiles.audioData(Files.readAllBytes(FILE_OUT)), Arrays.copyOfRange(output, outputDataBegin, output.length));
+	}
+
+	@Test
+	void reverseRejected() throws Exception
+	{
+		final Path FILE_IN = AudioTestFiles.generate(this.dir.resolve("in.wav"), 16, 2, 0);
+
+		AudioBaseClass audioobj = AudioBatch.createEffect("reverse", "-", "-");
+
+		audioobj.setInteractive(false);
+
+		assertFalse(audioobj.runStream(new ByteArrayInputStream(Files.readAllBytes(FILE_IN)), new ByteArrayOutputStream()));
+		assertTrue(audioobj.errMsg.contains("cannot run on a stream"));
+	}
+}
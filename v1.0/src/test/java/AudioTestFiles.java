@@ -0,0 +1,207 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/*
+ * Test input files and effect runs shared by the tests.
+ */
+
+final class AudioTestFiles
+{
+	private AudioTestFiles()
+	{
+	}
+
+	/*
+	 * Deterministic noise file (AudioGenerator), ending in a partial block.
+	 */
+
+	static Path generate(Path file, int bitDepth, int nChannels, int listChunkSize)
+	{
+		AudioGenerator generator = new AudioGenerator(file.toString());
+
+		generator.setInteractive(false);
+
+		if(!generator.setFormat(44100, bitDepth, nChannels) || !generator.setDuration(0.5) || !generator.setListChunkSize(listChunkSize))
+			throw new IllegalStateException(generator.getLastErrorMessage());
+
+		generator.setSignal(AudioGenerator.Signals.NOISE);
+		generator.setSeed(7L);
+		generator.setPartialBlock(true);
+
+		if(!generator.initialize() || !generator.runDSP())
+			throw new IllegalStateException(generator.getLastErrorMessage());
+
+		generator.deinitialize();
+		return file;
+	}
+
+	/*
+	 * Runs an effect ("bitcrush" runs at level 4, "chain:<spec>" is a chain) over fileIn.
+	 * "configure" sets the engine mode before initialize(). Returns the effect's error message, "" on success.
+	 */
+
+	static String run(String effect, Path fileIn, Path fileOut, Consumer<AudioBaseClass> configure)
+	{
+		return run(createEffect(effect, fileIn, fileOut), effect, configure);
+	}
+
+	static String run(AudioBaseClass audioobj, String effect, Consumer<AudioBaseClass> configure)
+	{
+		String errMsg = "";
+
+		audioobj.setInteractive(false);
+		audioobj.setPipelining(false);
+		configure.accept(audioobj);
+
+		if(effect.startsWith("chain:") && !((AudioChain) audioobj).setChain(effect.substring(6))) errMsg = audioobj.getLastErrorMessage();
+		else if(!audioobj.initialize()) errMsg = audioobj.getLastErrorMessage();
+		else if(effect.equals("bitcrush") && !((AudioBitCrush) audioobj).setCutoff(4)) errMsg = audioobj.getLastErrorMessage();
+		else if(!audioobj.runDSP()) errMsg = audioobj.getLastErrorMessage();
+
+		audioobj.deinitialize();
+		return errMsg;
+	}
+
+	static AudioBaseClass createEffect(String effect, Path fileIn, Path fileOut)
+	{
+		final String NAME = effect.startsWith("chain:") ? "chain" : effect;
+
+		return AudioBatch.createEffect(NAME, fileIn.toString(), fileOut.toString());
+	}
+
+	/*
+	 * Offset of a chunk's payload in a RIFF/RF64 file, or -1.
+	 */
+
+	static int chunkFind(byte[] wav, String chunkId)
+	{
+		final ByteBuffer WAV = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+
+		int offset = 12;
+		long chunkSize = 0L;
+
+		while((offset + 8) <= wav.length)
+		{
+			chunkSize = Integer.toUnsignedLong(WAV.getInt(offset + 4));
+
+			if(new String(wav, offset, 4, StandardCharsets.US_ASCII).equals(chunkId)) return (offset + 8);
+
+			/*RF64 "data": the real size is in "ds64", and "data" is always the last chunk here.*/
+			if(chunkSize == 0xffffffffL) return -1;
+
+			offset += 8 + (int) chunkSize + (int) (chunkSize & 1L);
+		}
+
+		return -1;
+	}
+
+	/*
+	 * Audio data of a RIFF or RF64 file.
+	 */
+
+	static byte[] audioData(byte[] wav)
+	{
+		final int DATA_BEGIN = chunkFind(wav, "data");
+		final int DS64_BEGIN = chunkFind(wav, "ds64");
+
+		long dataSize = Integer.toUnsignedLong(ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN).getInt(DATA_BEGIN - 4));
+
+		if(DS64_BEGIN >= 0) dataSize = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN).getLong(DS64_BEGIN + 8);
+
+		return Arrays.copyOfRange(wav, DATA_BEGIN, (DATA_BEGIN + (int) dataSize));
+	}
+
+	/*
+	 * The same file with an RF64 header: "ds64" chunk right after "WAVE", 0xFFFFFFFF RIFF and data sizes.
+	 */
+
+	static byte[] toRf64(byte[] wav)
+	{
+		final int DATA_BEGIN = chunkFind(wav, "data");
+		final long DATA_SIZE = Integer.toUnsignedLong(ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN).getInt(DATA_BEGIN - 4));
+		final int DS64_CHUNK_SIZE = 8 + 28;
+
+		ByteBuffer rf64 = ByteBuffer.allocate(wav.length + DS64_CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		rf64.put("RF64".getBytes(StandardCharsets.US_ASCII));
+		rf64.putInt(0xffffffff);
+		rf64.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+
+		rf64.put("ds64".getBytes(StandardCharsets.US_ASCII));
+		rf64.putInt(28);
+		rf64.putLong((long) (wav.length + DS64_CHUNK_SIZE - 8));
+		rf64.putLong(DATA_SIZE);
+		rf64.putLong(0L);
+		rf64.putInt(0);
+
+		rf64.put(wav, 12, (DATA_BEGIN - 12));
+		rf64.putInt(DATA_BEGIN - 4 + DS64_CHUNK_SIZE, 0xffffffff);
+
+		rf64.position(DATA_BEGIN + DS64_CHUNK_SIZE);
+		rf64.put(wav, DATA_BEGIN, (wav.length - DATA_BEGIN));
+
+		return rf64.array();
+	}
+
+	/*
+	 * Canonical 44-byte PCM header with the given fields, followed by dataSize zero bytes.
+	 */
+
+	static byte[] pcmFile(int nChannels, int sampleRate, int bitDepth, int blockAlign, int dataSize)
+	{
+		ByteBuffer wav = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+
+		wav.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+		wav.putInt(36 + dataSize);
+		wav.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+
+		wav.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+		wav.putInt(16);
+		wav.putShort((short) 1);
+		wav.putShort((short) nChannels);
+		wav.putInt(sampleRate);
+		wav.putInt(sampleRate*blockAlign);
+		wav.putShort((short) blockAlign);
+		wav.putShort((short) bitDepth);
+
+		wav.put("data".getBytes(StandardCharsets.US_ASCII));
+		wav.putInt(dataSize);
+
+		return wav.array();
+	}
+
+	/*
+	 * Little-endian signed samples of 16-bit or 24-bit audio data.
+	 */
+
+	static int[] samples(byte[] data, int bitDepth)
+	{
+		final int SAMPLE_SIZE = bitDepth/8;
+
+		int[] samples = new int[data.length/SAMPLE_SIZE];
+		int nSample = 0;
+		int offset = 0;
+
+		for(nSample = 0; nSample < samples.length; nSample++)
+		{
+			offset = nSample*SAMPLE_SIZE;
+
+			if(SAMPLE_SIZE == 2) samples[nSample] = (short) ((data[offset] & 0xff) | (data[offset + 1] << 8));
+			else samples[nSample] = ((data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8) | (data[offset + 2] << 16));
+		}
+
+		return samples;
+	}
+}
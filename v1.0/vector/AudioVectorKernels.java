@@ -0,0 +1,120 @@
+/*
+ * Audio FX Collection for Java Runtime
+ * Version 1.0
+ *
+ * Author: Rafael Sabe
+ * Email: rafaelmsabe@gmail.com
+ */
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * Effect kernels using the Java Vector API (incubator module).
+ * This file must be compiled and run with "--add-modules jdk.incubator.vector", which is why it lives
+ * outside the main source directory. Example, from the v1.0 directory:
+ *
+ * javac *.java
+ * javac --add-modules jdk.incubator.vector -cp . -d . vector/AudioVectorKernels.java
+ * java --add-modules jdk.incubator.vector Main
+ *
+ * Without it, the effects run their scalar kernels.
+ */
+
+public class AudioVectorKernels implements AudioSimdKernels
+{
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	/*
+	 * FRAME_SWAPS[k]: swaps lane i with lane i^(1 << k). Adding a vector to its swaps for k = 0...log2(nChannels) - 1
+	 * gives every lane the sum of its frame, for a power of 2 channel count (frames never straddle two vectors then).
+	 */
+	private static final VectorShuffle<Integer>[] FRAME_SWAPS = frameSwapsCreate();
+
+	@SuppressWarnings("unchecked")
+	private static VectorShuffle<Integer>[] frameSwapsCreate()
+	{
+		VectorShuffle<Integer>[] swaps = (VectorShuffle<Integer>[]) new VectorShuffle<?>[Integer.numberOfTrailingZeros(SPECIES.length())];
+		int nSwap = 0;
+
+		for(nSwap = 0; nSwap < swaps.length; nSwap++)
+		{
+			final int DISTANCE = 1 << nSwap;
+			swaps[nSwap] = VectorShuffle.fromOp(SPECIES, lane -> (lane ^ DISTANCE));
+		}
+
+		return swaps;
+	}
+
+	@Override
+	public void bitCrush(int[] buffer, int nSamples, int cutoff)
+	{
+		final int MASK = ~cutoff;
+		final int N_SAMPLES_VECTOR = SPECIES.loopBound(nSamples);
+
+		int nSample = 0;
+
+		for(nSample = 0; nSample < N_SAMPLES_VECTOR; nSample += SPECIES.length())
+			IntVector.fromArray(SPECIES, buffer, nSample).and(MASK).intoArray(buffer, nSample);
+
+		for(; nSample < nSamples; nSample++) buffer[nSample] &= MASK;
+	}
+
+	/*
+	 * Power of 2 channel counts up to the vector length only: the frame sums are made in registers (FRAME_SWAPS), and the
+	 * division is a shift. Other counts would need a per-sample sum buffer and an integer vector divide (which x86 does
+	 * not have), and are slower than the scalar loop.
+	 */
+
+	@Override
+	public boolean channelSubtract(int[] buffer, int nFrames, int nChannels, int sampleMax, int sampleMin)
+	{
+		final int N_SAMPLES = nFrames*nChannels;
+		final int N_SAMPLES_VECTOR = SPECIES.loopBound(N_SAMPLES);
+		final int SHIFT = Integer.numberOfTrailingZeros(nChannels);
+
+		IntVector sample = null;
+		IntVector frameSum = null;
+		int nSample = 0;
+		int nSwap = 0;
+		int nChannel = 0;
+		int monoSample = 0;
+		int channelSample = 0;
+
+		if((Integer.bitCount(nChannels) != 1) || (nChannels > SPECIES.length())) return false;
+
+		for(nSample = 0; nSample < N_SAMPLES_VECTOR; nSample += SPECIES.length())
+		{
+			sample = IntVector.fromArray(SPECIES, buffer, nSample);
+
+			frameSum = sample;
+			for(nSwap = 0; nSwap < SHIFT; nSwap++) frameSum = frameSum.add(frameSum.rearrange(FRAME_SWAPS[nSwap]));
+
+			/*(sample*nChannels - frameSum)/nChannels, rounding towards zero like integer division.*/
+			sample = sample.lanewise(VectorOperators.LSHL, SHIFT).sub(frameSum);
+			sample = sample.add(sample.lanewise(VectorOperators.ASHR, 31).and(nChannels - 1)).lanewise(VectorOperators.ASHR, SHIFT);
+
+			sample.max(sampleMin).min(sampleMax).intoArray(buffer, nSample);
+		}
+
+		/*Remaining whole frames (the vector loop ends on a frame boundary).*/
+		for(; nSample < N_SAMPLES; nSample += nChannels)
+		{
+			monoSample = 0;
+			for(nChannel = 0; nChannel < nChannels; nChannel++) monoSample += buffer[nSample + nChannel];
+
+			for(nChannel = 0; nChannel < nChannels; nChannel++)
+			{
+				channelSample = (buffer[nSample + nChannel]*nChannels - monoSample)/nChannels;
+
+				if(channelSample > sampleMax) buffer[nSample + nChannel] = sampleMax;
+				else if(channelSample < sampleMin) buffer[nSample + nChannel] = sampleMin;
+				else buffer[nSample + nChannel] = channelSample;
+			}
+		}
+
+		return true;
+	}
+}